@@ -0,0 +1,65 @@
+package com.baeldung.lss.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * The executor behind {@code @Async}: bounded, with named threads, and the submitter's security context per task
+ * instead of a context inherited once when a pooled thread happens to be created.
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig implements AsyncConfigurer {
+
+    @Value("${lss.async.core-size:4}")
+    private int coreSize;
+
+    @Value("${lss.async.max-size:8}")
+    private int maxSize;
+
+    @Value("${lss.async.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Autowired
+    private Environment environment;
+
+    @Bean
+    public SecurityContextTaskDecorator asyncTaskDecorator() {
+        return new SecurityContextTaskDecorator();
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor taskExecutor() {
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("lss-async-");
+        if (environment.acceptsProfiles(Profiles.of(VirtualThreadsConfig.PROFILE))) {
+            // same bounds, but a task blocked on I/O no longer holds a platform thread
+            executor.setThreadFactory(VirtualThreads.threadFactory("lss-async-"));
+        }
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        // when the queue and the pool are full the caller runs the task itself, which slows down the producer
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setTaskDecorator(asyncTaskDecorator());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        asyncTaskDecorator().setExecutor(executor);
+        return executor;
+    }
+
+    @Override
+    public Executor getAsyncExecutor() {
+        return taskExecutor();
+    }
+}
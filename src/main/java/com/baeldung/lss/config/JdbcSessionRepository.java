@@ -0,0 +1,467 @@
+package com.baeldung.lss.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanClassLoaderAware;
+import org.springframework.core.ConfigurableObjectInputStream;
+import org.springframework.core.serializer.support.SerializationFailedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.session.MapSession;
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * {@code HttpSession} store shared by all nodes through the {@code lss_session} table, one row per session, and
+ * {@code lss_session_attributes}, one row per attribute with its value serialized and deflated.
+ * <p>
+ * A save writes only the attributes this request set and that now serialize differently, and deletes the ones it
+ * removed, so two nodes changing different attributes of one session both keep their change; only concurrent writes
+ * of the same attribute still end with the last one. A request that only reads its session writes nothing but its
+ * new last-access time, which is queued and written in periodic JDBC batches, the latest per session. A touch can
+ * therefore lag by up to one flush interval on other nodes, which only matters if the flush interval is close to the
+ * session timeout. Expired rows are deleted in batches through the expiry index, their attributes with them.
+ */
+@ManagedResource(objectName = "com.baeldung.lss:type=SessionStore")
+public class JdbcSessionRepository implements SessionRepository<JdbcSessionRepository.JdbcSession>, BeanClassLoaderAware {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JdbcSessionRepository.class);
+
+    private static final String SELECT_SQL = "select s.id, s.creation_time, s.last_access_time, s.max_inactive_seconds, a.attribute_name, a.attribute_bytes"
+            + " from lss_session s left join lss_session_attributes a on a.session_id = s.id where s.id = ?";
+    private static final String INSERT_SQL = "insert into lss_session (id, creation_time, last_access_time, max_inactive_seconds, expiry_time) values (?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "update lss_session set last_access_time = ?, max_inactive_seconds = ?, expiry_time = ? where id = ?";
+    // the attribute rows follow through the foreign key's on update cascade
+    private static final String CHANGE_ID_SQL = "update lss_session set id = ? where id = ?";
+    // a touch keeps the timeout, so the expiry is derived from the row; never move a session back in time when
+    // another node already wrote a later access
+    private static final String TOUCH_SQL = "update lss_session set last_access_time = ?, expiry_time = ? + max_inactive_seconds * 1000 where id = ? and last_access_time < ?";
+    private static final String DELETE_SQL = "delete from lss_session where id = ?";
+    private static final String SELECT_EXPIRED_SQL = "select id from lss_session where expiry_time < ?";
+    private static final String DELETE_EXPIRED_SQL = "delete from lss_session where id = ? and expiry_time < ?";
+    private static final String INSERT_ATTRIBUTE_SQL = "insert into lss_session_attributes (session_id, attribute_name, attribute_bytes) values (?, ?, ?)";
+    private static final String UPDATE_ATTRIBUTE_SQL = "update lss_session_attributes set attribute_bytes = ? where session_id = ? and attribute_name = ?";
+    private static final String DELETE_ATTRIBUTE_SQL = "delete from lss_session_attributes where session_id = ? and attribute_name = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate expiredIdsTemplate;
+    private final Duration defaultMaxInactiveInterval;
+    private final int batchSize;
+    private ClassLoader classLoader = JdbcSessionRepository.class.getClassLoader();
+
+    private final ConcurrentMap<String, Instant> pendingTouches = new ConcurrentHashMap<>();
+    private final Lock flushLock = new ReentrantLock();
+
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder inserts = new LongAdder();
+    private final LongAdder attributeWrites = new LongAdder();
+    private final LongAdder attributeDeletes = new LongAdder();
+    private final LongAdder unchangedSaves = new LongAdder();
+    private final LongAdder coalescedTouches = new LongAdder();
+    private final LongAdder flushedTouches = new LongAdder();
+    private final LongAdder expiredDeletes = new LongAdder();
+
+    public JdbcSessionRepository(final DataSource dataSource, final Duration defaultMaxInactiveInterval, final int batchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.expiredIdsTemplate = new JdbcTemplate(dataSource);
+        this.expiredIdsTemplate.setMaxRows(batchSize);
+        this.defaultMaxInactiveInterval = defaultMaxInactiveInterval;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void setBeanClassLoader(final ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    @Override
+    public JdbcSession createSession() {
+        final MapSession session = new MapSession();
+        session.setMaxInactiveInterval(defaultMaxInactiveInterval);
+        return new JdbcSession(session, null);
+    }
+
+    @Override
+    public void save(final JdbcSession session) {
+        final String id = session.getId();
+        if (session.persistedId == null) {
+            insert(session);
+            return;
+        }
+        if (!id.equals(session.persistedId)) {
+            // a new id after login; the rows keep their content
+            jdbcTemplate.update(CHANGE_ID_SQL, id, session.persistedId);
+            final Instant touch = pendingTouches.remove(session.persistedId);
+            if (touch != null) {
+                pendingTouches.merge(id, touch, JdbcSessionRepository::later);
+            }
+            session.persistedId = id;
+        }
+        final boolean attributesWritten = writeChangedAttributes(session);
+        if (session.maxInactiveIntervalChanged) {
+            jdbcTemplate.update(UPDATE_SQL, session.getLastAccessedTime().toEpochMilli(), (int) session.getMaxInactiveInterval().getSeconds(),
+                    expiry(session), id);
+            pendingTouches.remove(id);
+            session.persisted();
+            return;
+        }
+        if (!attributesWritten) {
+            unchangedSaves.increment();
+        }
+        if (session.getLastAccessedTime().isAfter(session.persistedLastAccessedTime)
+                && pendingTouches.put(id, session.getLastAccessedTime()) != null) {
+            coalescedTouches.increment();
+        }
+        session.persisted();
+    }
+
+    private void insert(final JdbcSession session) {
+        final String id = session.getId();
+        jdbcTemplate.update(INSERT_SQL, id, session.getCreationTime().toEpochMilli(), session.getLastAccessedTime().toEpochMilli(),
+                (int) session.getMaxInactiveInterval().getSeconds(), expiry(session));
+        inserts.increment();
+        final List<Object[]> batch = new ArrayList<>();
+        for (String name : session.getAttributeNames()) {
+            final byte[] bytes = serialize(id, name, session.getAttribute(name));
+            batch.add(new Object[]{id, name, bytes});
+            session.persistedAttributes.put(name, bytes);
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ATTRIBUTE_SQL, batch);
+            attributeWrites.add(batch.size());
+        }
+        session.persisted();
+    }
+
+    // only what this request changed; the other attributes may have been changed by another node since it was read
+    private boolean writeChangedAttributes(final JdbcSession session) {
+        final String id = session.getId();
+        boolean written = false;
+        for (String name : session.changedAttributes) {
+            final Object value = session.getAttribute(name);
+            if (value == null) {
+                if (session.persistedAttributes.remove(name) != null) {
+                    jdbcTemplate.update(DELETE_ATTRIBUTE_SQL, id, name);
+                    attributeDeletes.increment();
+                    written = true;
+                }
+                continue;
+            }
+            final byte[] bytes = serialize(id, name, value);
+            if (Arrays.equals(bytes, session.persistedAttributes.get(name))) {
+                continue;
+            }
+            try {
+                if (jdbcTemplate.update(UPDATE_ATTRIBUTE_SQL, bytes, id, name) == 0) {
+                    jdbcTemplate.update(INSERT_ATTRIBUTE_SQL, id, name, bytes);
+                }
+            } catch (DuplicateKeyException e) {
+                // another node inserted it between the update and the insert
+                jdbcTemplate.update(UPDATE_ATTRIBUTE_SQL, bytes, id, name);
+            } catch (DataIntegrityViolationException e) {
+                LOG.debug("Session {} was deleted by another node before attribute {} was written", id, name);
+                continue;
+            }
+            session.persistedAttributes.put(name, bytes);
+            attributeWrites.increment();
+            written = true;
+        }
+        return written;
+    }
+
+    @Override
+    public JdbcSession findById(final String id) {
+        reads.increment();
+        final JdbcSession session = jdbcTemplate.query(SELECT_SQL, rs -> {
+            JdbcSession found = null;
+            while (rs.next()) {
+                if (found == null) {
+                    final MapSession delegate = new MapSession(rs.getString("id"));
+                    delegate.setCreationTime(Instant.ofEpochMilli(rs.getLong("creation_time")));
+                    delegate.setLastAccessedTime(Instant.ofEpochMilli(rs.getLong("last_access_time")));
+                    delegate.setMaxInactiveInterval(Duration.ofSeconds(rs.getInt("max_inactive_seconds")));
+                    found = new JdbcSession(delegate, delegate.getId());
+                }
+                final String name = rs.getString("attribute_name");
+                if (name != null) {
+                    final byte[] bytes = rs.getBytes("attribute_bytes");
+                    found.delegate.setAttribute(name, deserialize(id, name, bytes));
+                    found.persistedAttributes.put(name, bytes);
+                }
+            }
+            return found;
+        }, id);
+        if (session == null) {
+            return null;
+        }
+        // this node may know of a later access that is not written yet
+        final Instant touch = pendingTouches.get(id);
+        if (touch != null && touch.isAfter(session.getLastAccessedTime())) {
+            session.delegate.setLastAccessedTime(touch);
+            session.persistedLastAccessedTime = touch;
+        }
+        if (session.isExpired()) {
+            deleteById(id);
+            return null;
+        }
+        return session;
+    }
+
+    @Override
+    public void deleteById(final String id) {
+        pendingTouches.remove(id);
+        jdbcTemplate.update(DELETE_SQL, id);
+    }
+
+    @Scheduled(fixedDelayString = "${lss.session.jdbc.touch-flush-interval-ms:10000}")
+    @ManagedOperation
+    public void flushTouches() {
+        flushLock.lock();
+        try {
+            final List<Object[]> batch = new ArrayList<>(pendingTouches.size());
+            final Map<String, Instant> flushed = new HashMap<>();
+            for (String id : pendingTouches.keySet()) {
+                final Instant touch = pendingTouches.remove(id);
+                if (touch != null) {
+                    flushed.put(id, touch);
+                }
+            }
+            if (flushed.isEmpty()) {
+                return;
+            }
+            flushed.forEach((id, touch) -> batch.add(new Object[]{touch.toEpochMilli(), touch.toEpochMilli(), id, touch.toEpochMilli()}));
+            try {
+                jdbcTemplate.batchUpdate(TOUCH_SQL, batch);
+                flushedTouches.add(batch.size());
+            } catch (DataAccessException e) {
+                flushed.forEach((id, touch) -> pendingTouches.merge(id, touch, JdbcSessionRepository::later));
+                LOG.warn("Could not write {} session touches, will retry", batch.size(), e);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${lss.session.jdbc.cleanup-interval-ms:60000}")
+    @ManagedOperation
+    public void deleteExpiredSessions() {
+        // recent accesses first, so that the sweep sees them
+        flushTouches();
+        final long now = System.currentTimeMillis();
+        List<String> ids;
+        do {
+            ids = expiredIdsTemplate.queryForList(SELECT_EXPIRED_SQL, String.class, now);
+            if (ids.isEmpty()) {
+                break;
+            }
+            final List<Object[]> batch = new ArrayList<>(ids.size());
+            ids.forEach(id -> batch.add(new Object[]{id, now}));
+            jdbcTemplate.batchUpdate(DELETE_EXPIRED_SQL, batch);
+            expiredDeletes.add(ids.size());
+        } while (ids.size() >= batchSize);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushTouches();
+    }
+
+    private static long expiry(final Session session) {
+        return session.getLastAccessedTime().plus(session.getMaxInactiveInterval()).toEpochMilli();
+    }
+
+    private static Instant later(final Instant a, final Instant b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static byte[] serialize(final String id, final String name, final Object value) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (ObjectOutputStream out = new ObjectOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+            out.writeObject(value);
+        } catch (IOException e) {
+            throw new SerializationFailedException("Could not serialize attribute " + name + " of session " + id, e);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    private Object deserialize(final String id, final String name, final byte[] bytes) {
+        try (ObjectInputStream in = new ConfigurableObjectInputStream(new InflaterInputStream(new ByteArrayInputStream(bytes)), classLoader)) {
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new SerializationFailedException("Could not deserialize attribute " + name + " of session " + id, e);
+        }
+    }
+
+    @ManagedAttribute
+    public long getReads() {
+        return reads.sum();
+    }
+
+    @ManagedAttribute
+    public long getInserts() {
+        return inserts.sum();
+    }
+
+    @ManagedAttribute
+    public long getAttributeWrites() {
+        return attributeWrites.sum();
+    }
+
+    @ManagedAttribute
+    public long getAttributeDeletes() {
+        return attributeDeletes.sum();
+    }
+
+    @ManagedAttribute
+    public long getUnchangedSaves() {
+        return unchangedSaves.sum();
+    }
+
+    @ManagedAttribute
+    public int getPendingTouches() {
+        return pendingTouches.size();
+    }
+
+    @ManagedAttribute
+    public long getCoalescedTouches() {
+        return coalescedTouches.sum();
+    }
+
+    @ManagedAttribute
+    public long getFlushedTouches() {
+        return flushedTouches.sum();
+    }
+
+    @ManagedAttribute
+    public long getExpiredDeletes() {
+        return expiredDeletes.sum();
+    }
+
+    /**
+     * A {@link MapSession} that remembers what its rows hold and which attributes were touched, so that {@link #save}
+     * can tell what changed.
+     */
+    public static final class JdbcSession implements Session {
+
+        private final MapSession delegate;
+        private String persistedId;
+        private final Map<String, byte[]> persistedAttributes = new HashMap<>();
+        private final Set<String> changedAttributes = new HashSet<>();
+        private Instant persistedLastAccessedTime;
+        private boolean maxInactiveIntervalChanged;
+
+        private JdbcSession(final MapSession delegate, final String persistedId) {
+            this.delegate = delegate;
+            this.persistedId = persistedId;
+            this.persistedLastAccessedTime = delegate.getLastAccessedTime();
+        }
+
+        private void persisted() {
+            this.persistedId = delegate.getId();
+            this.persistedLastAccessedTime = delegate.getLastAccessedTime();
+            this.changedAttributes.clear();
+            this.maxInactiveIntervalChanged = false;
+        }
+
+        @Override
+        public String getId() {
+            return delegate.getId();
+        }
+
+        @Override
+        public String changeSessionId() {
+            return delegate.changeSessionId();
+        }
+
+        @Override
+        public <T> T getAttribute(final String attributeName) {
+            return delegate.getAttribute(attributeName);
+        }
+
+        @Override
+        public Set<String> getAttributeNames() {
+            return delegate.getAttributeNames();
+        }
+
+        @Override
+        public void setAttribute(final String attributeName, final Object attributeValue) {
+            delegate.setAttribute(attributeName, attributeValue);
+            changedAttributes.add(attributeName);
+        }
+
+        @Override
+        public void removeAttribute(final String attributeName) {
+            if (delegate.getAttribute(attributeName) != null) {
+                delegate.removeAttribute(attributeName);
+                changedAttributes.add(attributeName);
+            }
+        }
+
+        @Override
+        public Instant getCreationTime() {
+            return delegate.getCreationTime();
+        }
+
+        @Override
+        public void setLastAccessedTime(final Instant lastAccessedTime) {
+            delegate.setLastAccessedTime(lastAccessedTime);
+        }
+
+        @Override
+        public Instant getLastAccessedTime() {
+            return delegate.getLastAccessedTime();
+        }
+
+        @Override
+        public void setMaxInactiveInterval(final Duration interval) {
+            if (!interval.equals(delegate.getMaxInactiveInterval())) {
+                delegate.setMaxInactiveInterval(interval);
+                maxInactiveIntervalChanged = true;
+            }
+        }
+
+        @Override
+        public Duration getMaxInactiveInterval() {
+            return delegate.getMaxInactiveInterval();
+        }
+
+        @Override
+        public boolean isExpired() {
+            return delegate.isExpired();
+        }
+    }
+}
@@ -1,14 +1,27 @@
 package com.baeldung.lss.config;
 
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.orm.jpa.JpaVendorAdapter;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 @Configuration
@@ -22,22 +35,72 @@ public class PersistenceConfig {
     }*/
 
     @Bean
-    public DataSource dataSource(){
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        // also dependency inside pom is commented
-//        dataSource.setDriverClassName("org.h2.Driver");
-//        dataSource.setUrl("jdbc:h2:mem:learn-spring-db;DB_CLOSE_DELAY=-1");
-//        dataSource.setUsername("username");
-//        dataSource.setPassword("password");
-//        return dataSource;
-        dataSource.setDriverClassName("com.mysql.cj.jdbc.Driver");
-        dataSource.setUrl("jdbc:mysql://localhost:3306/securitycourse");
-        dataSource.setUsername("TestJPA");
-        dataSource.setPassword("12345678");
+    public PoolMetrics poolMetrics() {
+        return new PoolMetrics();
+    }
+
+    // url and credentials come from spring.datasource.*, pool settings from spring.datasource.hikari.*
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties, PoolMetrics poolMetrics) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setMetricsTrackerFactory(poolMetrics);
         return dataSource;
     }
+
+    // tables outside the JPA mapping; not a Flyway bean, which Boot would order before the entity manager factory
+    // while the deferred data.sql makes it wait for it
+    @Bean(initMethod = "migrate")
+    public SchemaMigrations schemaMigrations(HikariDataSource primaryDataSource) {
+        return new SchemaMigrations(primaryDataSource);
+    }
+
+    // replicas share the primary's credentials and pool settings unless overridden under lss.datasource.replica.*
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(HikariDataSource primaryDataSource, DataSourceProperties dataSourceProperties,
+                                                        Environment environment,
+                                                        @Value("${lss.datasource.replica.urls:}") String[] replicaUrls,
+                                                        @Value("${lss.datasource.replica.username:}") String replicaUsername,
+                                                        @Value("${lss.datasource.replica.password:}") String replicaPassword) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            if (url.trim().isEmpty()) {
+                continue;
+            }
+            HikariDataSource replica = new HikariDataSource();
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(replica));
+            replica.setPoolName(primaryDataSource.getPoolName() + "-replica-" + (replicas.size() + 1));
+            replica.setDriverClassName(dataSourceProperties.determineDriverClassName());
+            replica.setJdbcUrl(url.trim());
+            replica.setUsername(replicaUsername.isEmpty() ? dataSourceProperties.determineUsername() : replicaUsername);
+            replica.setPassword(replicaUsername.isEmpty() ? dataSourceProperties.determinePassword() : replicaPassword);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicas);
+    }
+
+    // the target is chosen when the first statement runs, once the transaction's read-only flag is set
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public FilterRegistrationBean<PrimaryPinningFilter> primaryPinningFilter(ReadWriteRoutingDataSource routingDataSource,
+                                                                            @Value("${lss.datasource.replica.pin-primary-after-write-ms:5000}") long windowMillis) {
+        FilterRegistrationBean<PrimaryPinningFilter> registration = new FilterRegistrationBean<>(new PrimaryPinningFilter(windowMillis));
+        // ahead of the security filters, which already read users
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        registration.setEnabled(routingDataSource.hasReplicas());
+        return registration;
+    }
+
     @Bean
-    public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
+    public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource, JpaProperties jpaProperties) {
 
         LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
         em.setDataSource(dataSource);
@@ -54,6 +117,8 @@ public class PersistenceConfig {
         properties.setProperty("javax.persistence.validation.mode","none");
         //properties.setProperty("open-in-view","false"); not working
         //properties.setProperty("database-platform","org.hibernate.dialect.MySQLDialect");
+        // spring.jpa.properties.* (e.g. per profile)
+        properties.putAll(jpaProperties.getProperties());
         em.setJpaProperties(properties);
 
         return em;
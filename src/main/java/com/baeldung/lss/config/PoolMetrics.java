@@ -0,0 +1,105 @@
+package com.baeldung.lss.config;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection pool metrics exported over JMX: live pool occupancy plus acquire latency, usage time and timeouts,
+ * which the pool's own MBean does not expose.
+ */
+@ManagedResource(objectName = "com.baeldung.lss:type=ConnectionPool")
+public class PoolMetrics implements MetricsTrackerFactory {
+
+    private volatile PoolStats poolStats;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final AtomicLong maxAcquireNanos = new AtomicLong();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder usages = new LongAdder();
+    private final LongAdder usageMillis = new LongAdder();
+
+    @Override
+    public IMetricsTracker create(final String poolName, final PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                created.increment();
+            }
+
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquired.increment();
+                acquireNanos.add(elapsedAcquiredNanos);
+                maxAcquireNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usages.increment();
+                usageMillis.add(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    @ManagedAttribute
+    public int getActiveConnections() {
+        return poolStats == null ? 0 : poolStats.getActiveConnections();
+    }
+
+    @ManagedAttribute
+    public int getIdleConnections() {
+        return poolStats == null ? 0 : poolStats.getIdleConnections();
+    }
+
+    @ManagedAttribute
+    public int getPendingThreads() {
+        return poolStats == null ? 0 : poolStats.getPendingThreads();
+    }
+
+    @ManagedAttribute
+    public long getAcquireCount() {
+        return acquired.sum();
+    }
+
+    @ManagedAttribute
+    public long getAverageAcquireMicros() {
+        final long count = acquired.sum();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(acquireNanos.sum() / count);
+    }
+
+    @ManagedAttribute
+    public long getMaxAcquireMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxAcquireNanos.get());
+    }
+
+    @ManagedAttribute
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    @ManagedAttribute
+    public long getConnectionsCreated() {
+        return created.sum();
+    }
+
+    @ManagedAttribute
+    public long getAverageUsageMillis() {
+        final long count = usages.sum();
+        return count == 0 ? 0 : usageMillis.sum() / count;
+    }
+}
@@ -0,0 +1,70 @@
+package com.baeldung.lss.config;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-your-writes for replica routing: once a request commits a write, the client gets a short-lived cookie and
+ * its reads go to the primary until the cookie expires, which should outlast the usual replication lag.
+ */
+public class PrimaryPinningFilter extends OncePerRequestFilter {
+
+    static final String COOKIE_NAME = "lss_primary";
+
+    private final long windowMillis;
+
+    public PrimaryPinningFilter(final long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ReplicaRouting.pinToPrimary(isPinned(request));
+        ReplicaRouting.setWriteListener(() -> pin(request, response));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReplicaRouting.setWriteListener(null);
+            ReplicaRouting.pinToPrimary(false);
+        }
+    }
+
+    private boolean isPinned(final HttpServletRequest request) {
+        final Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue()) > System.currentTimeMillis();
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void pin(final HttpServletRequest request, final HttpServletResponse response) {
+        // the rest of this request should read its own write too
+        ReplicaRouting.pinToPrimary(true);
+        if (response.isCommitted() || request.getAttribute(COOKIE_NAME) != null) {
+            return;
+        }
+        final Cookie cookie = new Cookie(COOKIE_NAME, String.valueOf(System.currentTimeMillis() + windowMillis));
+        cookie.setMaxAge((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(windowMillis)));
+        cookie.setPath(request.getContextPath().isEmpty() ? "/" : request.getContextPath());
+        cookie.setHttpOnly(true);
+        response.addCookie(cookie);
+        request.setAttribute(COOKIE_NAME, Boolean.TRUE);
+    }
+}
@@ -0,0 +1,207 @@
+package com.baeldung.lss.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends read-only transactions to the replicas, round robin, and everything else to the primary. Must sit behind a
+ * {@code LazyConnectionDataSourceProxy} so that the connection is only fetched once the transaction's read-only
+ * flag is known. Counts connections and statements per target.
+ * <p>
+ * Without replicas every connection comes from the primary as it is, and only connections are counted. With replicas,
+ * a read-write transaction on the primary reports a committed write to {@link ReplicaRouting} only if it sent a
+ * statement other than a query, so a read-write transaction that merely read does not pin the client.
+ */
+@ManagedResource(objectName = "com.baeldung.lss:type=DataSourceRouting")
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private final List<? extends DataSource> replicas;
+    private final List<String> replicaKeys = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final Map<String, LongAdder> connections = new LinkedHashMap<>();
+    private final Map<String, LongAdder> statements = new LinkedHashMap<>();
+
+    public ReadWriteRoutingDataSource(final DataSource primary, final List<? extends DataSource> replicas) {
+        this.replicas = replicas;
+        final Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            final String key = "replica-" + (i + 1);
+            targets.put(key, replicas.get(i));
+            replicaKeys.add(key);
+        }
+        for (Object key : targets.keySet()) {
+            connections.put((String) key, new LongAdder());
+            statements.put((String) key, new LongAdder());
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    public boolean hasReplicas() {
+        return !replicaKeys.isEmpty();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicaKeys.isEmpty()) {
+            return PRIMARY;
+        }
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !ReplicaRouting.isPinnedToPrimary()) {
+            return replicaKeys.get(Math.floorMod(next.getAndIncrement(), replicaKeys.size()));
+        }
+        return PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (replicaKeys.isEmpty()) {
+            connections.get(PRIMARY).increment();
+            return resolveTarget(PRIMARY).getConnection();
+        }
+        final String key = (String) determineCurrentLookupKey();
+        return counting(key, resolveTarget(key).getConnection());
+    }
+
+    @Override
+    public Connection getConnection(final String username, final String password) throws SQLException {
+        if (replicaKeys.isEmpty()) {
+            connections.get(PRIMARY).increment();
+            return resolveTarget(PRIMARY).getConnection(username, password);
+        }
+        final String key = (String) determineCurrentLookupKey();
+        return counting(key, resolveTarget(key).getConnection(username, password));
+    }
+
+    private DataSource resolveTarget(final String key) {
+        return getResolvedDataSources().get(key);
+    }
+
+    private Connection counting(final String key, final Connection target) {
+        connections.get(key).increment();
+        final LongAdder statementCount = statements.get(key);
+        final AtomicBoolean wrote = PRIMARY.equals(key) ? writeTracker() : null;
+        final InvocationHandler handler = (proxy, method, args) -> {
+            final String name = method.getName();
+            if (name.equals("equals")) {
+                return proxy == args[0];
+            }
+            if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            if (name.equals("createStatement") || name.equals("prepareStatement") || name.equals("prepareCall")) {
+                statementCount.increment();
+                if (wrote != null && !name.equals("createStatement") && !isQuery((String) args[0])) {
+                    wrote.set(true);
+                }
+            }
+            final Object result = invoke(target, method, args);
+            // a plain statement's SQL is only known when it runs
+            return wrote != null && name.equals("createStatement") ? tracking((Statement) result, wrote) : result;
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    private static Statement tracking(final Statement target, final AtomicBoolean wrote) {
+        final InvocationHandler handler = (proxy, method, args) -> {
+            final String name = method.getName();
+            if (name.equals("equals")) {
+                return proxy == args[0];
+            }
+            if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            if (name.startsWith("executeUpdate") || name.startsWith("executeLarge") || name.equals("addBatch")
+                    || (name.equals("execute") && !isQuery((String) args[0]))) {
+                wrote.set(true);
+            }
+            return invoke(target, method, args);
+        };
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{Statement.class}, handler);
+    }
+
+    private static Object invoke(final Object target, final Method method, final Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    // set once the read-write transaction on this connection sends a write; null outside such a transaction
+    private static AtomicBoolean writeTracker() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive() || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return null;
+        }
+        final AtomicBoolean wrote = new AtomicBoolean();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                if (wrote.get()) {
+                    ReplicaRouting.writeCommitted();
+                }
+            }
+        });
+        return wrote;
+    }
+
+    static boolean isQuery(final String sql) {
+        String statement = sql.trim();
+        // Hibernate's optional SQL comments come first
+        while (statement.startsWith("/*") && statement.contains("*/")) {
+            statement = statement.substring(statement.indexOf("*/") + 2).trim();
+        }
+        final String lower = statement.toLowerCase(Locale.ROOT);
+        return lower.startsWith("select") || lower.startsWith("values");
+    }
+
+    // the replicas are not beans of their own; the primary is closed by the container
+    public void close() throws Exception {
+        for (DataSource replica : replicas) {
+            if (replica instanceof AutoCloseable) {
+                ((AutoCloseable) replica).close();
+            }
+        }
+    }
+
+    @ManagedAttribute
+    public Map<String, Long> getConnectionCounts() {
+        return snapshot(connections);
+    }
+
+    @ManagedAttribute
+    public Map<String, Long> getStatementCounts() {
+        return snapshot(statements);
+    }
+
+    private static Map<String, Long> snapshot(final Map<String, LongAdder> counters) {
+        final Map<String, Long> snapshot = new LinkedHashMap<>();
+        counters.forEach((key, count) -> snapshot.put(key, count.sum()));
+        return Collections.unmodifiableMap(snapshot);
+    }
+}
@@ -0,0 +1,57 @@
+package com.baeldung.lss.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread routing hints for {@link ReadWriteRoutingDataSource}. Reads normally go to a replica when the
+ * transaction is read-only; a pinned thread sends them to the primary instead, so that a client sees its own
+ * writes before replication catches up.
+ */
+public final class ReplicaRouting {
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+    private static final ThreadLocal<Runnable> WRITE_LISTENER = new ThreadLocal<>();
+
+    private ReplicaRouting() {
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return Boolean.TRUE.equals(PINNED.get());
+    }
+
+    /**
+     * Runs the given work with reads pinned to the primary. Only transactions started inside it are affected.
+     */
+    public static <T> T onPrimary(final Supplier<T> work) {
+        final Boolean previous = PINNED.get();
+        PINNED.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            PINNED.set(previous);
+        }
+    }
+
+    static void pinToPrimary(final boolean pinned) {
+        if (pinned) {
+            PINNED.set(Boolean.TRUE);
+        } else {
+            PINNED.remove();
+        }
+    }
+
+    static void setWriteListener(final Runnable listener) {
+        if (listener == null) {
+            WRITE_LISTENER.remove();
+        } else {
+            WRITE_LISTENER.set(listener);
+        }
+    }
+
+    static void writeCommitted() {
+        final Runnable listener = WRITE_LISTENER.get();
+        if (listener != null) {
+            listener.run();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.baeldung.lss.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.springframework.boot.jdbc.DatabaseDriver;
+
+/**
+ * Creates and evolves the tables that are written through JDBC rather than mapped (remember-me tokens, sessions) with
+ * the Flyway migrations in {@code db/migration/<vendor>}, on the primary database. A database that predates the
+ * migrations is baselined at version 0, so each of them runs on it once; after that a restart runs nothing.
+ */
+public class SchemaMigrations {
+
+    private final Flyway flyway;
+
+    public SchemaMigrations(final HikariDataSource dataSource) {
+        this.flyway = Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration/" + DatabaseDriver.fromJdbcUrl(dataSource.getJdbcUrl()).getId())
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load();
+    }
+
+    public MigrateResult migrate() {
+        return flyway.migrate();
+    }
+}
@@ -0,0 +1,106 @@
+package com.baeldung.lss.config;
+
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands each {@code @Async} task the security context of the thread that submitted it and restores the worker's own
+ * context afterwards, so pooled threads never carry a principal from an earlier task. Also times the tasks: queue
+ * wait from submission to start, and run time.
+ */
+@ManagedResource(objectName = "com.baeldung.lss:type=AsyncExecutor")
+public class SecurityContextTaskDecorator implements TaskDecorator {
+
+    private ThreadPoolTaskExecutor executor;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+
+    void setExecutor(final ThreadPoolTaskExecutor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public Runnable decorate(final Runnable task) {
+        // a copy: logout clears the authentication of the caller's context object in place
+        final SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(SecurityContextHolder.getContext().getAuthentication());
+        final long submittedAt = System.nanoTime();
+        submitted.increment();
+        return () -> {
+            final long startedAt = System.nanoTime();
+            waitNanos.add(startedAt - submittedAt);
+            // with CallerRunsPolicy this may be the submitting thread, whose context has to survive the task
+            final SecurityContext previous = SecurityContextHolder.getContext();
+            SecurityContextHolder.setContext(context);
+            try {
+                task.run();
+            } catch (RuntimeException | Error e) {
+                failed.increment();
+                throw e;
+            } finally {
+                // the same object, even when empty: a caller's filters still hold it and save it after the request
+                SecurityContextHolder.setContext(previous);
+                runNanos.add(System.nanoTime() - startedAt);
+                completed.increment();
+            }
+        };
+    }
+
+    @ManagedAttribute
+    public int getQueueDepth() {
+        return executor == null ? 0 : executor.getThreadPoolExecutor().getQueue().size();
+    }
+
+    @ManagedAttribute
+    public int getActiveThreads() {
+        return executor == null ? 0 : executor.getActiveCount();
+    }
+
+    @ManagedAttribute
+    public int getPoolSize() {
+        return executor == null ? 0 : executor.getPoolSize();
+    }
+
+    @ManagedAttribute
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    @ManagedAttribute
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    @ManagedAttribute
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    @ManagedAttribute
+    public double getAverageWaitMillis() {
+        final long count = completed.sum();
+        return count == 0 ? 0 : waitNanos.sum() / 1_000_000d / count;
+    }
+
+    @ManagedAttribute
+    public double getAverageRunMillis() {
+        final long count = completed.sum();
+        return count == 0 ? 0 : runNanos.sum() / 1_000_000d / count;
+    }
+
+    @ManagedAttribute
+    public long getTotalRunMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(runNanos.sum());
+    }
+}
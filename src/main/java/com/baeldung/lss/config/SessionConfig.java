@@ -0,0 +1,31 @@
+package com.baeldung.lss.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.session.config.annotation.web.http.EnableSpringHttpSession;
+
+import java.time.Duration;
+
+/**
+ * With {@code lss.session.store=jdbc} the {@code HttpSession}, and with it the security context, lives in the shared
+ * database instead of the container, so any node can serve any request.
+ */
+@Configuration
+@EnableSpringHttpSession
+@ConditionalOnProperty(name = "lss.session.store", havingValue = "jdbc")
+public class SessionConfig {
+
+    // sessions are read and written outside transactions, but they must never be read from a lagging replica
+    @Bean
+    public JdbcSessionRepository sessionRepository(@Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+                                                   ServerProperties serverProperties,
+                                                   @Value("${lss.session.jdbc.cleanup-batch-size:500}") int cleanupBatchSize) {
+        final Duration timeout = serverProperties.getServlet().getSession().getTimeout();
+        return new JdbcSessionRepository(primaryDataSource, timeout == null ? Duration.ofMinutes(30) : timeout, cleanupBatchSize);
+    }
+}
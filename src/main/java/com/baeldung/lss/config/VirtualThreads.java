@@ -0,0 +1,43 @@
+package com.baeldung.lss.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to the JDK 21 virtual thread API from code compiled for Java 8, for the {@code virtual-threads} profile.
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw unavailable(e);
+        }
+    }
+
+    /**
+     * A factory for virtual threads named prefix0, prefix1, ...
+     */
+    static ThreadFactory threadFactory(final String prefix) {
+        try {
+            // through the public interface: the builder implementation class is not accessible
+            final Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            final Method name = builderType.getMethod("name", String.class, long.class);
+            final Method factory = builderType.getMethod("factory");
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) factory.invoke(name.invoke(builder, prefix, 0L));
+        } catch (ReflectiveOperationException e) {
+            throw unavailable(e);
+        }
+    }
+
+    private static IllegalStateException unavailable(final ReflectiveOperationException e) {
+        return new IllegalStateException("The virtual-threads profile needs JDK 21 or later, running on " + System.getProperty("java.version"), e);
+    }
+}
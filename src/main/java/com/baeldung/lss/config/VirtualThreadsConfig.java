@@ -0,0 +1,33 @@
+package com.baeldung.lss.config;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * With the {@code virtual-threads} profile (JDK 21+) Tomcat runs every request on its own virtual thread, so a request
+ * waiting for a pooled connection, the database or the hashing pool no longer holds a platform thread. BCrypt itself
+ * keeps running on the small platform pool of {@code BoundedPasswordEncoder}, and {@code @Async} tasks switch to
+ * virtual threads in {@link AsyncConfig}.
+ */
+@Configuration
+@Profile(VirtualThreadsConfig.PROFILE)
+public class VirtualThreadsConfig {
+
+    static final String PROFILE = "virtual-threads";
+
+    // Tomcat only shuts down executors it created itself, so this one is closed with the context
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadRequestExecutor() {
+        return VirtualThreads.newVirtualThreadPerTaskExecutor();
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadRequestExecutorCustomizer(ExecutorService virtualThreadRequestExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadRequestExecutor);
+    }
+}
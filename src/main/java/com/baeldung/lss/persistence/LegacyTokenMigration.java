@@ -0,0 +1,80 @@
+package com.baeldung.lss.persistence;
+
+import com.baeldung.lss.security.Tokens;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves tokens written as {@code UUID.toString()} into the binary {@code tokenKey} column, so links mailed before
+ * the switch keep working. Runs once the schema update has added the new column; on a schema that never had the
+ * legacy varchar column there is nothing to do.
+ */
+@Component
+public class LegacyTokenMigration {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LegacyTokenMigration.class);
+
+    private static final String[] TABLES = {"VerificationToken", "PasswordResetToken"};
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${lss.maintenance.batch-size:500}")
+    private int batchSize;
+
+    @Autowired
+    public LegacyTokenMigration(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        jdbcTemplate.setMaxRows(batchSize);
+        for (String table : TABLES) {
+            try {
+                final int migrated = migrate(table);
+                if (migrated > 0) {
+                    LOG.info("Migrated {} legacy tokens in {}", migrated, table);
+                }
+            } catch (BadSqlGrammarException e) {
+                LOG.debug("No legacy token column in {}", table);
+            }
+        }
+    }
+
+    private int migrate(final String table) {
+        final String select = "select id, token from " + table + " where tokenKey is null and token is not null";
+        final String update = "update " + table + " set tokenKey = ?, token = null where id = ?";
+        int migrated = 0;
+        while (true) {
+            final List<Object[]> batch = new ArrayList<>();
+            jdbcTemplate.query(select, rs -> {
+                batch.add(new Object[]{toKey(rs.getString(2)), rs.getLong(1)});
+            });
+            if (batch.isEmpty()) {
+                return migrated;
+            }
+            jdbcTemplate.batchUpdate(update, batch);
+            migrated += batch.size();
+        }
+    }
+
+    // a value that is not a UUID could never have matched a link; clearing it keeps the row out of the next batch
+    private static byte[] toKey(final String legacy) {
+        try {
+            return Tokens.fromUuid(legacy);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.baeldung.lss.persistence;
+
+import com.baeldung.lss.web.model.MailOutboxMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+public interface MailOutboxRepository extends JpaRepository<MailOutboxMessage, Long> {
+
+    // row locks keep two dispatchers from claiming the same messages
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select m from MailOutboxMessage m where m.status = :status and m.nextAttemptAt <= :now order by m.nextAttemptAt")
+    List<MailOutboxMessage> findDueForUpdate(@Param("status") MailOutboxMessage.Status status, @Param("now") Date now,
+                                             Pageable pageable);
+
+    long countByStatus(MailOutboxMessage.Status status);
+
+    // a dead message keeps the time it was given up in nextAttemptAt, so this runs on the due index too
+    @Query("select m.id from MailOutboxMessage m where m.status = :status and m.nextAttemptAt < :before order by m.nextAttemptAt")
+    List<Long> findIdsByStatusBefore(@Param("status") MailOutboxMessage.Status status, @Param("before") Date before, Pageable pageable);
+
+    @Modifying
+    @Query("delete from MailOutboxMessage m where m.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
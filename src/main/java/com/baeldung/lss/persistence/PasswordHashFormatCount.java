@@ -0,0 +1,9 @@
+package com.baeldung.lss.persistence;
+
+public interface PasswordHashFormatCount {
+
+    String getFormat();
+
+    Long getUsers();
+
+}
@@ -0,0 +1,18 @@
+package com.baeldung.lss.persistence;
+
+/**
+ * What authentication needs from a user row, read as scalars: no entity, no token join, no dirty checking.
+ */
+public interface UserCredentials {
+
+    Long getId();
+
+    String getEmail();
+
+    String getPassword();
+
+    Boolean getEnabled();
+
+    int getCredentialEpoch();
+
+}
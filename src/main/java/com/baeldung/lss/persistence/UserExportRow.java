@@ -0,0 +1,15 @@
+package com.baeldung.lss.persistence;
+
+import java.util.Calendar;
+
+public interface UserExportRow {
+
+    Long getId();
+
+    String getEmail();
+
+    Boolean getEnabled();
+
+    Calendar getCreated();
+
+}
@@ -1,10 +1,67 @@
 package com.baeldung.lss.persistence;
 
 import com.baeldung.lss.web.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface UserRepository extends JpaRepository<User, Long> {
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
-    User findByEmail(String email);
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
+
+    @Query("select u.id as id, u.email as email, u.password as password, u.enabled as enabled, "
+            + "u.credentialEpoch as credentialEpoch from User u where u.email = :email")
+    UserCredentials findCredentialsByEmail(@Param("email") String email);
+
+    /**
+     * Counts users per stored hash prefix, up to and including the BCrypt cost,
+     * e.g. {@code {bcrypt}$2a$12$} or the legacy un-prefixed {@code $2a$04$}.
+     */
+    @Query("select substring(u.password, 1, locate('$', u.password) + 6) as format, count(u) as users from User u "
+            + "group by substring(u.password, 1, locate('$', u.password) + 6)")
+    List<PasswordHashFormatCount> countByPasswordHashFormat();
+
+    @Query("select u.email from User u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    @Query("select u.id as id, u.email as email, u.created as created from User u where u.email in :emails")
+    List<UserSummary> findSummariesByEmailIn(@Param("emails") Collection<String> emails);
+
+    // keyset pages for the admin list: the Pageable carries the limit and the sort, the cursor replaces the offset
+
+    @Query("select u.id as id, u.email as email, u.created as created from User u")
+    List<UserSummary> findSummaries(Pageable pageable);
+
+    @Query("select u.id as id, u.email as email, u.created as created from User u where u.id > :id")
+    List<UserSummary> findSummariesWithIdGreaterThan(@Param("id") long id, Pageable pageable);
+
+    @Query("select u.id as id, u.email as email, u.created as created from User u where u.id < :id")
+    List<UserSummary> findSummariesWithIdLessThan(@Param("id") long id, Pageable pageable);
+
+    @Query("select u.id as id, u.email as email, u.created as created from User u where u.email > :email")
+    List<UserSummary> findSummariesWithEmailGreaterThan(@Param("email") String email, Pageable pageable);
+
+    @Query("select u.id as id, u.email as email, u.created as created from User u where u.email < :email")
+    List<UserSummary> findSummariesWithEmailLessThan(@Param("email") String email, Pageable pageable);
+
+    // forward-only cursor over scalar rows: nothing is managed, so the persistence context stays empty
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select u.id as id, u.email as email, u.enabled as enabled, u.created as created from User u order by u.id")
+    Stream<UserExportRow> streamAllForExport();
+
+    // InnoDB's row estimate: free to read, but only roughly right
+    @Query(value = "select table_rows from information_schema.tables where table_schema = database() and table_name = 'User'",
+            nativeQuery = true)
+    Long estimateCount();
+
+    @Modifying
+    @Query("delete from User u where u.id in :ids and u.enabled = false")
+    int deleteUnverifiedByIdIn(@Param("ids") Collection<Long> ids);
 
 }
@@ -0,0 +1,9 @@
+package com.baeldung.lss.persistence;
+
+import com.baeldung.lss.web.model.User;
+
+public interface UserRepositoryCustom {
+
+    User findByEmail(String email);
+
+}
@@ -0,0 +1,29 @@
+package com.baeldung.lss.persistence;
+
+import com.baeldung.lss.web.model.User;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Resolves users by their natural id, so repeated lookups are served from the second-level cache
+ * instead of a query per call.
+ */
+class UserRepositoryImpl implements UserRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public User findByEmail(final String email) {
+        if (email == null) {
+            return null;
+        }
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(User.class)
+                .load(email);
+    }
+}
@@ -0,0 +1,16 @@
+package com.baeldung.lss.persistence;
+
+import java.util.Calendar;
+
+/**
+ * The columns the admin user list shows; loading it never touches the verification token.
+ */
+public interface UserSummary {
+
+    Long getId();
+
+    String getEmail();
+
+    Calendar getCreated();
+
+}
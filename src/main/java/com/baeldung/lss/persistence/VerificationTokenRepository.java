@@ -1,9 +1,32 @@
 package com.baeldung.lss.persistence;
 
 import com.baeldung.lss.web.model.VerificationToken;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 
 
 public interface VerificationTokenRepository extends JpaRepository<VerificationToken, Long> {
-    VerificationToken findByToken(String token);
+    VerificationToken findByToken(byte[] token);
+
+    @Query("select t.id from VerificationToken t where t.expiryDate < :now order by t.expiryDate")
+    List<Long> findExpiredIds(@Param("now") Date now, Pageable pageable);
+
+    // accounts that were never confirmed before their registration token ran out
+    @Query("select t.user.id from VerificationToken t where t.expiryDate < :now and t.user.enabled = false order by t.expiryDate")
+    List<Long> findUnverifiedUserIdsWithExpiredToken(@Param("now") Date now, Pageable pageable);
+
+    @Modifying
+    @Query("delete from VerificationToken t where t.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("delete from VerificationToken t where t.user.id in :userIds")
+    int deleteByUserIdIn(@Param("userIds") Collection<Long> userIds);
 }
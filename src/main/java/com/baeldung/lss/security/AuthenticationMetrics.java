@@ -0,0 +1,86 @@
+package com.baeldung.lss.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.AccountExpiredException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.CredentialsExpiredException;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.authentication.LockedException;
+import org.springframework.security.authentication.RememberMeAuthenticationToken;
+import org.springframework.security.authentication.event.AbstractAuthenticationFailureEvent;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts logins as {@code lss.login} by outcome and reason, from the authentication events the provider manager
+ * publishes. Attempts the throttling filter turned away never reach the provider manager and are read off the filter.
+ */
+@Component
+public class AuthenticationMetrics {
+
+    private static final String NAME = "lss.login";
+
+    private final Counter password;
+    private final Counter rememberMe;
+    private final Counter badCredentials;
+    private final Counter disabled;
+    private final Counter locked;
+    private final Counter expired;
+    private final Counter credentialsExpired;
+    private final Counter otherFailure;
+
+    @Autowired
+    public AuthenticationMetrics(MeterRegistry meterRegistry, LoginThrottlingFilter loginThrottlingFilter) {
+        this.password = counter(meterRegistry, "success", "password");
+        this.rememberMe = counter(meterRegistry, "success", "remember_me");
+        this.badCredentials = counter(meterRegistry, "failure", "bad_credentials");
+        this.disabled = counter(meterRegistry, "failure", "disabled");
+        this.locked = counter(meterRegistry, "failure", "locked");
+        this.expired = counter(meterRegistry, "failure", "account_expired");
+        this.credentialsExpired = counter(meterRegistry, "failure", "credentials_expired");
+        this.otherFailure = counter(meterRegistry, "failure", "other");
+        FunctionCounter.builder(NAME, loginThrottlingFilter, LoginThrottlingFilter::getRejectedCount)
+                .tag("outcome", "failure")
+                .tag("reason", "throttled")
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onSuccess(final AuthenticationSuccessEvent event) {
+        (event.getAuthentication() instanceof RememberMeAuthenticationToken ? rememberMe : password).increment();
+    }
+
+    @EventListener
+    public void onFailure(final AbstractAuthenticationFailureEvent event) {
+        failureCounter(event.getException()).increment();
+    }
+
+    private Counter failureCounter(final AuthenticationException exception) {
+        // unknown emails surface as bad credentials too, so they cannot be told apart here either
+        if (exception instanceof BadCredentialsException) {
+            return badCredentials;
+        }
+        if (exception instanceof DisabledException) {
+            return disabled;
+        }
+        if (exception instanceof LockedException) {
+            return locked;
+        }
+        if (exception instanceof AccountExpiredException) {
+            return expired;
+        }
+        if (exception instanceof CredentialsExpiredException) {
+            return credentialsExpired;
+        }
+        return otherFailure;
+    }
+
+    private static Counter counter(final MeterRegistry meterRegistry, final String outcome, final String reason) {
+        return Counter.builder(NAME).tag("outcome", outcome).tag("reason", reason).register(meterRegistry);
+    }
+}
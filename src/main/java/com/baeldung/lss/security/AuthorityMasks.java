@@ -0,0 +1,67 @@
+package com.baeldung.lss.security;
+
+import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Interns granted authority names into bit positions, so a set of authorities becomes a single {@code long} and an
+ * authority check is a map lookup and a bit test. Only names that have been granted to someone are interned; a name
+ * nobody holds cannot match. Only the first 64 distinct names get a bit; any others are checked against the
+ * authority list.
+ */
+class AuthorityMasks {
+
+    static final int NO_BIT = -1;
+
+    static final int NOT_GRANTED = -2;
+
+    private static final int MAX_BITS = Long.SIZE;
+
+    private final ConcurrentMap<String, Integer> bits = new ConcurrentHashMap<>();
+    private final AtomicInteger nextBit = new AtomicInteger();
+
+    long mask(final Collection<? extends GrantedAuthority> authorities) {
+        long mask = 0;
+        for (GrantedAuthority authority : authorities) {
+            if (authority.getAuthority() == null) {
+                continue;
+            }
+            final int bit = intern(authority.getAuthority());
+            if (bit != NO_BIT) {
+                mask |= 1L << bit;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * @return the name's bit, {@link #NO_BIT} if it was granted after the bits ran out, or {@link #NOT_GRANTED} if no
+     * mask computed so far contained it
+     */
+    int bit(final String authority) {
+        final Integer bit = bits.get(authority);
+        return bit == null ? NOT_GRANTED : bit;
+    }
+
+    private int intern(final String authority) {
+        final Integer bit = bits.get(authority);
+        if (bit != null) {
+            return bit;
+        }
+        return bits.computeIfAbsent(authority, name -> {
+            final int next = nextBit.getAndIncrement();
+            return next < MAX_BITS ? next : NO_BIT;
+        });
+    }
+
+    static Collection<? extends GrantedAuthority> authorities(final Authentication authentication, final RoleHierarchy roleHierarchy) {
+        final Collection<? extends GrantedAuthority> authorities = authentication.getAuthorities();
+        return roleHierarchy == null ? authorities : roleHierarchy.getReachableGrantedAuthorities(authorities);
+    }
+}
@@ -0,0 +1,210 @@
+package com.baeldung.lss.security;
+
+import org.springframework.security.access.PermissionEvaluator;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionOperations;
+import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+/**
+ * Expression root whose authority checks test bits of an {@link AuthorityMasks} mask instead of scanning the
+ * authorities. The mask is computed from the authentication's authorities on the first check, so it is always
+ * current, whether the authentication was just built or read back from a session. Public so that compiled
+ * expressions can call it directly.
+ */
+public class BitsetSecurityExpressionRoot implements MethodSecurityExpressionOperations {
+
+    private static final String ADMIN = "ADMIN";
+
+    public final boolean permitAll = true;
+
+    public final boolean denyAll = false;
+
+    private final Authentication authentication;
+
+    private final AuthorityMasks authorityMasks;
+
+    private final AuthenticationTrustResolver trustResolver;
+
+    private final RoleHierarchy roleHierarchy;
+
+    private final PermissionEvaluator permissionEvaluator;
+
+    private final String defaultRolePrefix;
+
+    private Collection<? extends GrantedAuthority> authorities;
+
+    private long mask;
+
+    private Object filterObject;
+
+    private Object returnObject;
+
+    private Object target;
+
+    BitsetSecurityExpressionRoot(Authentication authentication, AuthorityMasks authorityMasks, AuthenticationTrustResolver trustResolver,
+                                 RoleHierarchy roleHierarchy, PermissionEvaluator permissionEvaluator, String defaultRolePrefix) {
+        if (authentication == null) {
+            throw new IllegalArgumentException("Authentication object cannot be null");
+        }
+        this.authentication = authentication;
+        this.authorityMasks = authorityMasks;
+        this.trustResolver = trustResolver;
+        this.roleHierarchy = roleHierarchy;
+        this.permissionEvaluator = permissionEvaluator;
+        this.defaultRolePrefix = defaultRolePrefix;
+    }
+
+    public boolean isAdmin() {
+        return has(ADMIN);
+    }
+
+    @Override
+    public boolean hasAuthority(String authority) {
+        return has(authority);
+    }
+
+    @Override
+    public boolean hasAnyAuthority(String... authorities) {
+        for (String authority : authorities) {
+            if (has(authority)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean hasRole(String role) {
+        return has(withDefaultRolePrefix(role));
+    }
+
+    @Override
+    public boolean hasAnyRole(String... roles) {
+        for (String role : roles) {
+            if (has(withDefaultRolePrefix(role))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean has(final String authority) {
+        if (authority == null) {
+            return false;
+        }
+        final long mask = mask();
+        final int bit = authorityMasks.bit(authority);
+        if (bit >= 0) {
+            return (mask & (1L << bit)) != 0;
+        }
+        if (bit == AuthorityMasks.NOT_GRANTED) {
+            return false;
+        }
+        // past the first 64 distinct names: fall back to scanning
+        for (GrantedAuthority granted : authorities) {
+            if (authority.equals(granted.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // interns this authentication's names before any lookup, so bit() only reports NOT_GRANTED for names nobody holds
+    private long mask() {
+        if (authorities == null) {
+            authorities = AuthorityMasks.authorities(authentication, roleHierarchy);
+            mask = authorityMasks.mask(authorities);
+        }
+        return mask;
+    }
+
+    private String withDefaultRolePrefix(final String role) {
+        if (role == null || defaultRolePrefix == null || defaultRolePrefix.isEmpty() || role.startsWith(defaultRolePrefix)) {
+            return role;
+        }
+        return defaultRolePrefix + role;
+    }
+
+    @Override
+    public Authentication getAuthentication() {
+        return authentication;
+    }
+
+    public Object getPrincipal() {
+        return authentication.getPrincipal();
+    }
+
+    @Override
+    public boolean permitAll() {
+        return true;
+    }
+
+    @Override
+    public boolean denyAll() {
+        return false;
+    }
+
+    @Override
+    public boolean isAnonymous() {
+        return trustResolver.isAnonymous(authentication);
+    }
+
+    @Override
+    public boolean isAuthenticated() {
+        return !isAnonymous();
+    }
+
+    @Override
+    public boolean isRememberMe() {
+        return trustResolver.isRememberMe(authentication);
+    }
+
+    @Override
+    public boolean isFullyAuthenticated() {
+        return !trustResolver.isAnonymous(authentication) && !trustResolver.isRememberMe(authentication);
+    }
+
+    @Override
+    public boolean hasPermission(Object target, Object permission) {
+        return permissionEvaluator.hasPermission(authentication, target, permission);
+    }
+
+    @Override
+    public boolean hasPermission(Object targetId, String targetType, Object permission) {
+        return permissionEvaluator.hasPermission(authentication, (Serializable) targetId, targetType, permission);
+    }
+
+    @Override
+    public void setFilterObject(Object filterObject) {
+        this.filterObject = filterObject;
+    }
+
+    @Override
+    public Object getFilterObject() {
+        return this.filterObject;
+    }
+
+    @Override
+    public void setReturnObject(Object returnObject) {
+        this.returnObject = returnObject;
+    }
+
+    @Override
+    public Object getReturnObject() {
+        return this.returnObject;
+    }
+
+    void setThis(Object target) {
+        this.target = target;
+    }
+
+    @Override
+    public Object getThis() {
+        return this.target;
+    }
+}
@@ -0,0 +1,150 @@
+package com.baeldung.lss.security;
+
+import com.google.common.base.Throwables;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs the expensive {@link PasswordEncoder} operations on a dedicated, CPU-sized pool with a bounded queue, so that
+ * a burst of logins cannot occupy every request thread with hashing. When the queue is full the call fails fast with
+ * a {@link PasswordHashingRejectedException} instead of waiting.
+ */
+@ManagedResource(objectName = "com.baeldung.lss:type=PasswordHashingExecutor")
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long retryAfterSeconds;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    private final Timer encodeTimer;
+    private final Timer verifyTimer;
+    private final Timer queueWaitTimer;
+    private final Counter rejectedCounter;
+
+    public BoundedPasswordEncoder(final PasswordEncoder delegate, final int threads, final int queueCapacity, final long retryAfterSeconds,
+                                  final MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.retryAfterSeconds = retryAfterSeconds;
+        // hashing time on the pool; the time spent waiting for a pool thread is the queue wait
+        this.encodeTimer = Timer.builder("lss.password.hashing").tag("operation", "encode").register(meterRegistry);
+        this.verifyTimer = Timer.builder("lss.password.hashing").tag("operation", "verify").register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("lss.password.hashing.queue.wait").register(meterRegistry);
+        this.rejectedCounter = Counter.builder("lss.password.hashing.rejected").register(meterRegistry);
+
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("password-hashing-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public String encode(final CharSequence rawPassword) {
+        return execute(() -> delegate.encode(rawPassword), encodeTimer);
+    }
+
+    @Override
+    public boolean matches(final CharSequence rawPassword, final String encodedPassword) {
+        return execute(() -> delegate.matches(rawPassword, encodedPassword), verifyTimer);
+    }
+
+    @Override
+    public boolean upgradeEncoding(final String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T execute(final Callable<T> task, final Timer timer) {
+        final long submitted = System.nanoTime();
+        final Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                final long started = System.nanoTime();
+                waitNanos.add(started - submitted);
+                queueWaitTimer.record(started - submitted, TimeUnit.NANOSECONDS);
+                try {
+                    final T result = task.call();
+                    completed.increment();
+                    return result;
+                } catch (Exception | Error e) {
+                    failed.increment();
+                    throw e;
+                } finally {
+                    timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            rejectedCounter.increment();
+            throw new PasswordHashingRejectedException(retryAfterSeconds);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @ManagedAttribute
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @ManagedAttribute
+    public int getActiveThreads() {
+        return executor.getActiveCount();
+    }
+
+    @ManagedAttribute
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @ManagedAttribute
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    @ManagedAttribute
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    @ManagedAttribute
+    public long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos.sum());
+    }
+
+    @ManagedAttribute
+    public double getAverageWaitMillis() {
+        // every task that left the queue, whatever its outcome, has waited
+        final long count = completed.sum() + failed.sum();
+        return count == 0 ? 0 : waitNanos.sum() / 1_000_000d / count;
+    }
+}
@@ -0,0 +1,98 @@
+package com.baeldung.lss.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.security.web.authentication.rememberme.PersistentRememberMeToken;
+import org.springframework.security.web.authentication.rememberme.PersistentTokenRepository;
+
+import java.util.Date;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remember-me token store that serves series lookups from memory, so an auto-login costs one statement, the rotation,
+ * instead of a select followed by the rotation.
+ * <p>
+ * Every write goes to the database before the cache and before the new cookie is issued: a rotated-away token is gone
+ * from {@code persistent_logins} as soon as the request that replaced it completes, and a crash loses nothing but the
+ * cache. The cache is local to the node, so every node has to see all auto-logins of a given series (single node or
+ * sticky routing); a node holding a superseded token would take the newer cookie for a stolen one.
+ */
+@ManagedResource(objectName = "com.baeldung.lss:type=RememberMeTokenStore")
+public class CachingPersistentTokenRepository implements PersistentTokenRepository {
+
+    private final PersistentTokenRepository delegate;
+
+    private final Cache<String, PersistentRememberMeToken> tokens;
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder databaseReads = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+
+    public CachingPersistentTokenRepository(final PersistentTokenRepository delegate, final long maximumSize) {
+        this.delegate = delegate;
+        this.tokens = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    @Override
+    public void createNewToken(final PersistentRememberMeToken token) {
+        delegate.createNewToken(token);
+        tokens.put(token.getSeries(), token);
+    }
+
+    @Override
+    public void updateToken(final String series, final String tokenValue, final Date lastUsed) {
+        delegate.updateToken(series, tokenValue, lastUsed);
+        rotations.increment();
+        final PersistentRememberMeToken current = tokens.getIfPresent(series);
+        if (current == null) {
+            // evicted meanwhile; the next lookup reads the rotated row
+            return;
+        }
+        tokens.put(series, new PersistentRememberMeToken(current.getUsername(), series, tokenValue, lastUsed));
+    }
+
+    @Override
+    public PersistentRememberMeToken getTokenForSeries(final String seriesId) {
+        PersistentRememberMeToken token = tokens.getIfPresent(seriesId);
+        if (token != null) {
+            cacheHits.increment();
+            return token;
+        }
+        databaseReads.increment();
+        token = delegate.getTokenForSeries(seriesId);
+        if (token != null) {
+            tokens.put(seriesId, token);
+        }
+        return token;
+    }
+
+    @Override
+    public void removeUserTokens(final String username) {
+        delegate.removeUserTokens(username);
+        tokens.asMap().values().removeIf(token -> username.equals(token.getUsername()));
+    }
+
+    @ManagedAttribute
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @ManagedAttribute
+    public long getDatabaseReads() {
+        return databaseReads.sum();
+    }
+
+    @ManagedAttribute
+    public long getRotations() {
+        return rotations.sum();
+    }
+
+    @ManagedAttribute
+    public long getCachedSeries() {
+        return tokens.size();
+    }
+}
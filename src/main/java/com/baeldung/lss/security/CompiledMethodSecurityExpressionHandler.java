@@ -0,0 +1,31 @@
+package com.baeldung.lss.security;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionOperations;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Method-security handler whose expressions are compiled to bytecode once they have run interpreted, falling back to
+ * interpretation for anything the compiler does not support. Expressions are parsed once per annotated method and kept
+ * with its security metadata, so each method's compiled form is reused on every call.
+ */
+public class CompiledMethodSecurityExpressionHandler extends DefaultMethodSecurityExpressionHandler {
+
+    private final AuthorityMasks authorityMasks = new AuthorityMasks();
+
+    public CompiledMethodSecurityExpressionHandler(ClassLoader classLoader) {
+        setExpressionParser(new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.MIXED, classLoader)));
+    }
+
+    @Override
+    protected MethodSecurityExpressionOperations createSecurityExpressionRoot(Authentication authentication, MethodInvocation invocation) {
+        BitsetSecurityExpressionRoot root = new BitsetSecurityExpressionRoot(authentication, authorityMasks, getTrustResolver(),
+                getRoleHierarchy(), getPermissionEvaluator(), getDefaultRolePrefix());
+        root.setThis(invocation.getThis());
+        return root;
+    }
+}
@@ -0,0 +1,335 @@
+package com.baeldung.lss.security;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authorization.AuthenticatedAuthorizationManager;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * URL authorization over an ordered rule table, first match wins, like {@code authorizeRequests()}. Rules are filed in
+ * a trie under the literal segments their ant pattern starts with, and per HTTP method, so a request is only matched
+ * against the rules filed along its own path; the rule's {@link AntPathRequestMatcher} still makes the final call.
+ * Rules starting with a wildcard are filed at the root and checked for every request.
+ */
+public class IndexedRequestAuthorizationManager implements AuthorizationManager<RequestAuthorizationContext> {
+
+    private static final int[] NO_RULES = new int[0];
+
+    private final RequestMatcher[] matchers;
+    private final List<AuthorizationManager<RequestAuthorizationContext>> managers;
+    private final String[] access;
+    private final Node root;
+
+    private IndexedRequestAuthorizationManager(final List<Rule> rules) {
+        this.matchers = new RequestMatcher[rules.size()];
+        this.managers = new ArrayList<>(rules.size());
+        this.access = new String[rules.size()];
+        final Node.Builder rootBuilder = new Node.Builder();
+        for (int i = 0; i < rules.size(); i++) {
+            final Rule rule = rules.get(i);
+            matchers[i] = rule.matcher;
+            managers.add(rule.manager);
+            access[i] = rule.access;
+            Node.Builder node = rootBuilder;
+            for (String segment : rule.literalPrefix) {
+                node = node.children.computeIfAbsent(segment, s -> new Node.Builder());
+            }
+            node.add(rule.method, i);
+        }
+        this.root = rootBuilder.build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public AuthorizationDecision check(final Supplier<Authentication> authentication, final RequestAuthorizationContext context) {
+        final int rule = firstMatch(context.getRequest());
+        // no rule is an abstain, as with the request matcher delegating manager
+        return rule < 0 ? null : managers.get(rule).check(authentication, context);
+    }
+
+    /**
+     * Index of the first rule in table order that matches the request, or -1.
+     */
+    public int firstMatch(final HttpServletRequest request) {
+        final String method = request.getMethod();
+        final String path = requestPath(request);
+        int best = Integer.MAX_VALUE;
+        Node node = root;
+        int from = 0;
+        while (node != null) {
+            for (int rule : node.rules(method)) {
+                if (rule >= best) {
+                    break;
+                }
+                if (matchers[rule].matches(request)) {
+                    best = rule;
+                    break;
+                }
+            }
+            // next non-empty segment, the way AntPathMatcher tokenizes
+            while (from < path.length() && path.charAt(from) == '/') {
+                from++;
+            }
+            if (from >= path.length() || node.children.isEmpty()) {
+                break;
+            }
+            int to = path.indexOf('/', from);
+            if (to < 0) {
+                to = path.length();
+            }
+            node = node.children.get(path.substring(from, to));
+            from = to;
+        }
+        return best == Integer.MAX_VALUE ? -1 : best;
+    }
+
+    public int getRuleCount() {
+        return matchers.length;
+    }
+
+    /**
+     * The rule's access decision, written the way {@code authorizeRequests()} writes it, e.g. {@code hasAuthority('ADMIN')}.
+     */
+    public String getAccess(final int rule) {
+        return access[rule];
+    }
+
+    // what AntPathRequestMatcher matches against
+    private static String requestPath(final HttpServletRequest request) {
+        final String servletPath = request.getServletPath();
+        final String pathInfo = request.getPathInfo();
+        if (pathInfo == null) {
+            return servletPath == null ? "" : servletPath;
+        }
+        return servletPath == null || servletPath.isEmpty() ? pathInfo : servletPath + pathInfo;
+    }
+
+    private static final class Node {
+
+        private final int[] anyMethod;
+        // rules for one method merged with the method-less ones, in table order
+        private final Map<String, int[]> byMethod;
+        private final Map<String, Node> children;
+
+        private Node(final int[] anyMethod, final Map<String, int[]> byMethod, final Map<String, Node> children) {
+            this.anyMethod = anyMethod;
+            this.byMethod = byMethod;
+            this.children = children;
+        }
+
+        int[] rules(final String method) {
+            if (byMethod.isEmpty() || method == null) {
+                return anyMethod;
+            }
+            final int[] rules = byMethod.get(method);
+            return rules == null ? anyMethod : rules;
+        }
+
+        private static final class Builder {
+
+            private final TreeSet<Integer> anyMethod = new TreeSet<>();
+            private final Map<String, TreeSet<Integer>> byMethod = new HashMap<>();
+            private final Map<String, Builder> children = new HashMap<>();
+
+            void add(final HttpMethod method, final int rule) {
+                if (method == null) {
+                    anyMethod.add(rule);
+                } else {
+                    byMethod.computeIfAbsent(method.name(), m -> new TreeSet<>()).add(rule);
+                }
+            }
+
+            Node build() {
+                final Map<String, int[]> methods = new HashMap<>();
+                byMethod.forEach((method, rules) -> {
+                    final TreeSet<Integer> merged = new TreeSet<>(rules);
+                    merged.addAll(anyMethod);
+                    methods.put(method, toArray(merged));
+                });
+                final Map<String, Node> builtChildren = new HashMap<>();
+                children.forEach((segment, child) -> builtChildren.put(segment, child.build()));
+                return new Node(anyMethod.isEmpty() ? NO_RULES : toArray(anyMethod), methods, builtChildren);
+            }
+
+            private static int[] toArray(final TreeSet<Integer> rules) {
+                return rules.stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+    }
+
+    private static final class Rule {
+
+        private final HttpMethod method;
+        private final List<String> literalPrefix;
+        private final RequestMatcher matcher;
+        private final AuthorizationManager<RequestAuthorizationContext> manager;
+        private final String access;
+
+        private Rule(final HttpMethod method, final List<String> literalPrefix, final RequestMatcher matcher,
+                     final AuthorizationManager<RequestAuthorizationContext> manager, final String access) {
+            this.method = method;
+            this.literalPrefix = literalPrefix;
+            this.matcher = matcher;
+            this.manager = manager;
+            this.access = access;
+        }
+    }
+
+    /**
+     * Collects the rules in the order they are declared; the first matching rule decides.
+     */
+    public static final class Builder {
+
+        private final List<Rule> rules = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public RuleBuilder antMatchers(final String... patterns) {
+            return antMatchers(null, patterns);
+        }
+
+        public RuleBuilder antMatchers(final HttpMethod method, final String... patterns) {
+            final List<RequestMatcher> matchers = new ArrayList<>(patterns.length);
+            final List<List<String>> prefixes = new ArrayList<>(patterns.length);
+            for (String pattern : patterns) {
+                matchers.add(new AntPathRequestMatcher(pattern, method == null ? null : method.name()));
+                prefixes.add(literalPrefix(pattern));
+            }
+            return new RuleBuilder(this, method, matchers, prefixes);
+        }
+
+        /**
+         * URLs that must equal the request URI plus query string, as {@code formLogin().permitAll()} and
+         * {@code logout().permitAll()} match the login and logout pages.
+         */
+        public RuleBuilder exactUrls(final String... urls) {
+            final List<RequestMatcher> matchers = new ArrayList<>(urls.length);
+            final List<List<String>> prefixes = new ArrayList<>(urls.length);
+            for (String url : urls) {
+                matchers.add(new ExactUrlRequestMatcher(url));
+                final int query = url.indexOf('?');
+                prefixes.add(literalPrefix(query < 0 ? url : url.substring(0, query)));
+            }
+            return new RuleBuilder(this, null, matchers, prefixes);
+        }
+
+        public RuleBuilder anyRequest() {
+            return new RuleBuilder(this, null, Collections.singletonList(AnyRequestMatcher.INSTANCE),
+                    Collections.singletonList(Collections.emptyList()));
+        }
+
+        public IndexedRequestAuthorizationManager build() {
+            return new IndexedRequestAuthorizationManager(rules);
+        }
+
+        private Builder add(final RuleBuilder rule, final AuthorizationManager<RequestAuthorizationContext> manager, final String access) {
+            for (int i = 0; i < rule.matchers.size(); i++) {
+                rules.add(new Rule(rule.method, rule.prefixes.get(i), rule.matchers.get(i), manager, access));
+            }
+            return this;
+        }
+
+        // leading segments without wildcards or template variables; those must equal the request's segments
+        private static List<String> literalPrefix(final String pattern) {
+            final List<String> prefix = new ArrayList<>();
+            for (String segment : pattern.split("/")) {
+                if (segment.isEmpty()) {
+                    continue;
+                }
+                if (segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0 || segment.indexOf('{') >= 0) {
+                    break;
+                }
+                prefix.add(segment);
+            }
+            return prefix;
+        }
+    }
+
+    /**
+     * The access decision for the requests just declared.
+     */
+    public static final class RuleBuilder {
+
+        private final Builder builder;
+        private final HttpMethod method;
+        private final List<RequestMatcher> matchers;
+        private final List<List<String>> prefixes;
+
+        private RuleBuilder(final Builder builder, final HttpMethod method, final List<RequestMatcher> matchers,
+                            final List<List<String>> prefixes) {
+            this.builder = builder;
+            this.method = method;
+            this.matchers = matchers;
+            this.prefixes = prefixes;
+        }
+
+        public Builder permitAll() {
+            return access((authentication, context) -> new AuthorizationDecision(true), "permitAll");
+        }
+
+        public Builder denyAll() {
+            return access((authentication, context) -> new AuthorizationDecision(false), "denyAll");
+        }
+
+        public Builder authenticated() {
+            return access(AuthenticatedAuthorizationManager.authenticated(), "authenticated");
+        }
+
+        public Builder hasAuthority(final String authority) {
+            return access(AuthorityAuthorizationManager.hasAuthority(authority), "hasAuthority('" + authority + "')");
+        }
+
+        public Builder hasAnyAuthority(final String... authorities) {
+            return access(AuthorityAuthorizationManager.hasAnyAuthority(authorities),
+                    "hasAnyAuthority('" + String.join("','", authorities) + "')");
+        }
+
+        public Builder access(final AuthorizationManager<RequestAuthorizationContext> manager) {
+            return access(manager, manager.toString());
+        }
+
+        private Builder access(final AuthorizationManager<RequestAuthorizationContext> manager, final String access) {
+            return builder.add(this, manager, access);
+        }
+    }
+
+    // PermitAllSupport's matcher, which is not public
+    private static final class ExactUrlRequestMatcher implements RequestMatcher {
+
+        private final String url;
+
+        private ExactUrlRequestMatcher(final String url) {
+            this.url = url;
+        }
+
+        @Override
+        public boolean matches(final HttpServletRequest request) {
+            String uri = request.getRequestURI();
+            final String query = request.getQueryString();
+            if (query != null) {
+                uri += "?" + query;
+            }
+            final String contextPath = request.getContextPath();
+            return "".equals(contextPath) ? uri.equals(url) : uri.equals(contextPath + url);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.baeldung.lss.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Token buckets keyed by an arbitrary string, with progressive lockout after consecutive failures. Each key holds
+ * an immutable state updated by compare-and-set, so acquiring never blocks; the key map itself is a lock-striped,
+ * size-bounded cache that drops idle entries.
+ */
+class LoginThrottle {
+
+    private final Cache<String, AtomicReference<State>> buckets;
+    private final double capacity;
+    private final double tokensPerNano;
+    private final int freeFailures;
+    private final long backoffBaseNanos;
+    private final long backoffMaxNanos;
+
+    LoginThrottle(final LoginThrottlingFilter.Limit limit, final LoginThrottlingFilter.Backoff backoff, final long maximumEntries,
+                  final Duration idleTimeout) {
+        this.buckets = CacheBuilder.newBuilder()
+                .maximumSize(maximumEntries)
+                .expireAfterAccess(idleTimeout.toNanos(), TimeUnit.NANOSECONDS)
+                .build();
+        this.capacity = limit.capacity;
+        this.tokensPerNano = limit.refillPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.freeFailures = limit.freeFailures;
+        this.backoffBaseNanos = backoff.base.toNanos();
+        this.backoffMaxNanos = backoff.max.toNanos();
+    }
+
+    /**
+     * Takes one token for the key.
+     *
+     * @return 0 if the attempt may proceed, otherwise the nanoseconds until it may be retried
+     */
+    long tryAcquire(final String key, final long now) {
+        final ConcurrentMap<String, AtomicReference<State>> map = buckets.asMap();
+        final AtomicReference<State> ref = map.computeIfAbsent(key, k -> new AtomicReference<>(new State(capacity, now, 0, now)));
+        while (true) {
+            final State state = ref.get();
+            if (now - state.blockedUntil < 0) {
+                return state.blockedUntil - now;
+            }
+            final double tokens = Math.min(capacity, state.tokens + (now - state.refilledAt) * tokensPerNano);
+            if (tokens < 1) {
+                return (long) Math.ceil((1 - tokens) / tokensPerNano);
+            }
+            if (ref.compareAndSet(state, new State(tokens - 1, now, state.failures, state.blockedUntil))) {
+                return 0;
+            }
+        }
+    }
+
+    void recordFailure(final String key, final long now) {
+        final AtomicReference<State> ref = buckets.getIfPresent(key);
+        if (ref == null) {
+            return;
+        }
+        while (true) {
+            final State state = ref.get();
+            final int failures = state.failures + 1;
+            long blockedUntil = state.blockedUntil;
+            if (failures > freeFailures) {
+                final int doublings = Math.min(failures - freeFailures - 1, Long.numberOfLeadingZeros(backoffBaseNanos) - 1);
+                blockedUntil = now + Math.min(backoffMaxNanos, backoffBaseNanos << doublings);
+            }
+            if (ref.compareAndSet(state, new State(state.tokens, state.refilledAt, failures, blockedUntil))) {
+                return;
+            }
+        }
+    }
+
+    void recordSuccess(final String key) {
+        final AtomicReference<State> ref = buckets.getIfPresent(key);
+        if (ref == null) {
+            return;
+        }
+        while (true) {
+            final State state = ref.get();
+            if (state.failures == 0 || ref.compareAndSet(state, new State(state.tokens, state.refilledAt, 0, state.blockedUntil))) {
+                return;
+            }
+        }
+    }
+
+    long size() {
+        return buckets.size();
+    }
+
+    private static final class State {
+
+        private final double tokens;
+        private final long refilledAt;
+        private final int failures;
+        private final long blockedUntil;
+
+        private State(final double tokens, final long refilledAt, final int failures, final long blockedUntil) {
+            this.tokens = tokens;
+            this.refilledAt = refilledAt;
+            this.failures = failures;
+            this.blockedUntil = blockedUntil;
+        }
+    }
+}
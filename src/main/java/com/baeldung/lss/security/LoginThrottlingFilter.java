@@ -0,0 +1,140 @@
+package com.baeldung.lss.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throttles form login attempts per email and per client address. Sits in front of
+ * {@link UsernamePasswordAuthenticationFilter}, so a rejected attempt never reaches the database or the password
+ * encoder; the outcome of an admitted attempt is read back from the security context to drive the lockout.
+ */
+@ManagedResource(objectName = "com.baeldung.lss:type=LoginThrottling")
+public class LoginThrottlingFilter extends OncePerRequestFilter {
+
+    private final RequestMatcher loginRequest;
+    private final LoginThrottle accountThrottle;
+    private final LoginThrottle addressThrottle;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param maximumEntries per throttle; the least recently used keys are dropped beyond this
+     */
+    public LoginThrottlingFilter(final String loginProcessingUrl, final Limit account, final Limit address, final Backoff backoff,
+                                 final long maximumEntries, final Duration idleTimeout) {
+        this.loginRequest = new AntPathRequestMatcher(loginProcessingUrl, "POST");
+        this.accountThrottle = new LoginThrottle(account, backoff, maximumEntries, idleTimeout);
+        this.addressThrottle = new LoginThrottle(address, backoff, maximumEntries, idleTimeout);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!loginRequest.matches(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        final String account = accountKey(request);
+        final String address = request.getRemoteAddr();
+        final long now = System.nanoTime();
+
+        final long waitNanos = Math.max(addressThrottle.tryAcquire(address, now), accountThrottle.tryAcquire(account, now));
+        if (waitNanos > 0) {
+            rejected.increment();
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1)));
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write("Too many login attempts, please retry later");
+            return;
+        }
+        admitted.increment();
+
+        filterChain.doFilter(request, response);
+
+        final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated() && !(authentication instanceof AnonymousAuthenticationToken)) {
+            accountThrottle.recordSuccess(account);
+            addressThrottle.recordSuccess(address);
+        } else {
+            final long failedAt = System.nanoTime();
+            accountThrottle.recordFailure(account, failedAt);
+            addressThrottle.recordFailure(address, failedAt);
+        }
+    }
+
+    private String accountKey(final HttpServletRequest request) {
+        final String username = request.getParameter(UsernamePasswordAuthenticationFilter.SPRING_SECURITY_FORM_USERNAME_KEY);
+        return username == null ? "" : username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @ManagedAttribute
+    public long getAdmittedCount() {
+        return admitted.sum();
+    }
+
+    @ManagedAttribute
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @ManagedAttribute
+    public long getTrackedAccounts() {
+        return accountThrottle.size();
+    }
+
+    @ManagedAttribute
+    public long getTrackedAddresses() {
+        return addressThrottle.size();
+    }
+
+    /**
+     * A token bucket: {@code capacity} attempts at once, refilled at {@code refillPerMinute}; the lockout starts
+     * after {@code freeFailures} consecutive failures.
+     */
+    public static final class Limit {
+
+        final int capacity;
+        final int refillPerMinute;
+        final int freeFailures;
+
+        public Limit(final int capacity, final int refillPerMinute, final int freeFailures) {
+            this.capacity = capacity;
+            this.refillPerMinute = refillPerMinute;
+            this.freeFailures = freeFailures;
+        }
+    }
+
+    /**
+     * The lockout after the free failures: base, 2 x base, 4 x base ... up to max.
+     */
+    public static final class Backoff {
+
+        final Duration base;
+        final Duration max;
+
+        public Backoff(final Duration base, final Duration max) {
+            this.base = base;
+            this.max = max;
+        }
+    }
+}
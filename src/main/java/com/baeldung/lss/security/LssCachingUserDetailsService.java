@@ -0,0 +1,154 @@
+package com.baeldung.lss.security;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded, TTL-based cache in front of {@link LssUserDetailsService}.
+ * Concurrent misses for the same email are coalesced into a single lookup. The lookup runs outside any monitor
+ * (a Guava loader would run inside one), so it does not pin the carrier thread of a virtual thread.
+ */
+@Service
+@Primary
+@ManagedResource(objectName = "com.baeldung.lss:type=UserDetailsCache")
+public class LssCachingUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
+
+    private final LssUserDetailsService userDetailsService;
+
+    private final Cache<String, CompletableFuture<UserDetails>> cache;
+
+    @Autowired
+    public LssCachingUserDetailsService(LssUserDetailsService userDetailsService,
+                                        @Value("${lss.user-cache.maximum-size:10000}") long maximumSize,
+                                        @Value("${lss.user-cache.ttl-seconds:60}") long ttlSeconds,
+                                        MeterRegistry meterRegistry) {
+        this.userDetailsService = userDetailsService;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, cache, "lss.user-cache");
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(final String email) throws UsernameNotFoundException {
+        final UserDetails cached;
+        try {
+            cached = lookup(normalize(email)).join();
+        } catch (CompletionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        }
+        // the ProviderManager erases the credentials of the principal it is handed, so never expose the cached instance
+        if (cached instanceof LssUserDetails) {
+            return ((LssUserDetails) cached).withPassword(cached.getPassword());
+        }
+        return User.withUserDetails(cached).build();
+    }
+
+    // the first caller for a missing email loads it; concurrent callers wait on its future
+    private CompletableFuture<UserDetails> lookup(final String key) {
+        final CompletableFuture<UserDetails> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        final CompletableFuture<UserDetails> loading = new CompletableFuture<>();
+        final CompletableFuture<UserDetails> concurrent = cache.asMap().putIfAbsent(key, loading);
+        if (concurrent != null) {
+            return concurrent;
+        }
+        try {
+            loading.complete(userDetailsService.loadUserByUsername(key));
+        } catch (Throwable e) {
+            // failures, such as an unknown email, are not cached; an Error must release the waiting callers as well
+            cache.asMap().remove(key, loading);
+            loading.completeExceptionally(e);
+            Throwables.throwIfUnchecked(e);
+            throw new IllegalStateException(e);
+        }
+        return loading;
+    }
+
+    @Override
+    public UserDetails updatePassword(final UserDetails user, final String newPassword) {
+        final UserDetails updated = userDetailsService.updatePassword(user, newPassword);
+        evict(user.getUsername());
+        return updated;
+    }
+
+    /**
+     * Drops the entry for the given email now and, when called inside a transaction, once more after it completes
+     * so that a concurrent load cannot re-cache the pre-commit row.
+     */
+    public void evict(final String email) {
+        if (email == null) {
+            return;
+        }
+        final String key = normalize(email);
+        cache.invalidate(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(key);
+                }
+            });
+        }
+    }
+
+    private static String normalize(final String email) {
+        return com.baeldung.lss.web.model.User.normalizeEmail(email);
+    }
+
+    @ManagedOperation
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    @ManagedAttribute
+    public long getSize() {
+        return cache.size();
+    }
+
+    @ManagedAttribute
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    @ManagedAttribute
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    @ManagedAttribute
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    @ManagedAttribute
+    public double getHitRate() {
+        return cache.stats().hitRate();
+    }
+}
@@ -0,0 +1,39 @@
+package com.baeldung.lss.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Spring Security user that also carries the account id and its credential epoch, which is bumped on every
+ * password change and invalidates signed remember-me cookies issued before it.
+ */
+public class LssUserDetails extends User {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+
+    private final int credentialEpoch;
+
+    public LssUserDetails(final Long id, final int credentialEpoch, final String username, final String password,
+                          final boolean enabled, final Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, enabled, true, true, true, authorities);
+        this.id = id;
+        this.credentialEpoch = credentialEpoch;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public int getCredentialEpoch() {
+        return credentialEpoch;
+    }
+
+    public LssUserDetails withPassword(final String password) {
+        return new LssUserDetails(id, credentialEpoch, getUsername(), password, isEnabled(), getAuthorities());
+    }
+
+}
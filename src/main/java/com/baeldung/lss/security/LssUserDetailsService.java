@@ -1,50 +1,82 @@
 package com.baeldung.lss.security;
 
+import com.baeldung.lss.persistence.UserCredentials;
 import com.baeldung.lss.persistence.UserRepository;
 import com.baeldung.lss.web.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import javax.transaction.Transactional;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Transactional
-public class LssUserDetailsService implements UserDetailsService {
+public class LssUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private static final String ROLE_USER = "USER";
     private static final String ROLE_ADMIN = "ADMIN";
 
     private final UserRepository userRepository;
 
+    private final Timer lookupFound;
+    private final Timer lookupNotFound;
+
     @Autowired
-    public LssUserDetailsService(UserRepository userRepository) {
+    public LssUserDetailsService(UserRepository userRepository, MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
+        this.lookupFound = Timer.builder("lss.user.lookup").tag("outcome", "found").register(meterRegistry);
+        this.lookupNotFound = Timer.builder("lss.user.lookup").tag("outcome", "not_found").register(meterRegistry);
     }
 
+    // read-only so that it can be served by a replica; a single-row scalar select, the User entity is never loaded
     @Override
+    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(final String email) throws UsernameNotFoundException {
-        final User user = userRepository.findByEmail(email);
+        final long start = System.nanoTime();
+        final UserCredentials user = userRepository.findCredentialsByEmail(User.normalizeEmail(email));
+        (user == null ? lookupNotFound : lookupFound).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         if (user == null) {
             throw new UsernameNotFoundException("No user found with username: " + email);
         }
-        return new org.springframework.security.core.userdetails.User(
+        return new LssUserDetails(
+                user.getId(),
+                user.getCredentialEpoch(),
                 user.getEmail(),
                 user.getPassword(),
-                user.getEnabled(),
-                true,
-                true,
-                true,
+                Boolean.TRUE.equals(user.getEnabled()),
                 getAuthorities(ROLE_ADMIN,ROLE_USER)
         );
     }
 
+    // called after a successful login whose stored hash uses an outdated algorithm or strength
+    @Override
+    public UserDetails updatePassword(final UserDetails userDetails, final String newPassword) {
+        // through the entity rather than a bulk update, which would empty the user caches for everybody; only the
+        // hash that was just verified is replaced, a password changed in the meantime is left alone
+        final User user = userRepository.findByEmail(User.normalizeEmail(userDetails.getUsername()));
+        if (user == null || !user.getPassword().equals(userDetails.getPassword())) {
+            return userDetails;
+        }
+        // a rehash is not a password change, so the credential epoch stays as it is
+        user.setPassword(newPassword);
+        if (userDetails instanceof LssUserDetails) {
+            return ((LssUserDetails) userDetails).withPassword(newPassword);
+        }
+        return org.springframework.security.core.userdetails.User.withUserDetails(userDetails)
+                .password(newPassword)
+                .build();
+    }
+
     private Collection<? extends GrantedAuthority>
     getAuthorities(String role, String roleUser) {
         return Collections.singletonList(new SimpleGrantedAuthority(role));
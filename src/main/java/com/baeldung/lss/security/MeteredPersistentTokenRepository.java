@@ -0,0 +1,48 @@
+package com.baeldung.lss.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.web.authentication.rememberme.PersistentRememberMeToken;
+import org.springframework.security.web.authentication.rememberme.PersistentTokenRepository;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the series lookups of a remember-me token store, one per auto-login, by whether the series was found.
+ */
+public class MeteredPersistentTokenRepository implements PersistentTokenRepository {
+
+    private final PersistentTokenRepository delegate;
+    private final Timer found;
+    private final Timer missing;
+
+    public MeteredPersistentTokenRepository(final PersistentTokenRepository delegate, final String store, final MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.found = Timer.builder("lss.remember-me.lookup").tag("store", store).tag("outcome", "found").register(meterRegistry);
+        this.missing = Timer.builder("lss.remember-me.lookup").tag("store", store).tag("outcome", "missing").register(meterRegistry);
+    }
+
+    @Override
+    public PersistentRememberMeToken getTokenForSeries(final String seriesId) {
+        final long start = System.nanoTime();
+        final PersistentRememberMeToken token = delegate.getTokenForSeries(seriesId);
+        (token == null ? missing : found).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return token;
+    }
+
+    @Override
+    public void createNewToken(final PersistentRememberMeToken token) {
+        delegate.createNewToken(token);
+    }
+
+    @Override
+    public void updateToken(final String series, final String tokenValue, final Date lastUsed) {
+        delegate.updateToken(series, tokenValue, lastUsed);
+    }
+
+    @Override
+    public void removeUserTokens(final String username) {
+        delegate.removeUserTokens(username);
+    }
+}
@@ -0,0 +1,76 @@
+package com.baeldung.lss.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds the application password encoder: hashes are stored as {@code {id}hash} so that several formats can
+ * coexist, new hashes are always BCrypt, and legacy un-prefixed BCrypt hashes still match.
+ */
+public final class PasswordEncoders {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PasswordEncoders.class);
+
+    public static final String BCRYPT = "bcrypt";
+    public static final String PBKDF2 = "pbkdf2";
+
+    private static final int MIN_STRENGTH = 4;
+    private static final int MAX_STRENGTH = 31;
+    private static final int PROBE_STRENGTH = 8;
+    private static final int PROBE_SAMPLES = 5;
+    private static final String PROBE_PASSWORD = "calibration-probe";
+
+    private PasswordEncoders() {
+    }
+
+    public static PasswordEncoder delegating(final int bcryptStrength) {
+        final Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put(BCRYPT, new BCryptPasswordEncoder(bcryptStrength));
+        encoders.put(PBKDF2, new Pbkdf2PasswordEncoder());
+
+        final DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(BCRYPT, encoders);
+        // hashes written before the prefix was introduced are plain BCrypt
+        encoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder(bcryptStrength));
+        return encoder;
+    }
+
+    /**
+     * Picks the highest BCrypt strength whose single verification on this host stays within the target latency,
+     * but never less than {@code minStrength}. Each extra strength step doubles the cost, so one probe at a cheap
+     * strength is enough to extrapolate; the result is then confirmed with a real measurement.
+     */
+    public static int calibrateBCryptStrength(final long targetMillis, final int minStrength) {
+        final double probeMillis = measureMillis(PROBE_STRENGTH, PROBE_SAMPLES);
+        int strength = PROBE_STRENGTH + (int) Math.floor(Math.log(targetMillis / probeMillis) / Math.log(2));
+        strength = Math.max(Math.max(minStrength, MIN_STRENGTH), Math.min(MAX_STRENGTH, strength));
+
+        double millis = measureMillis(strength, 1);
+        while (millis > targetMillis && strength > Math.max(minStrength, MIN_STRENGTH)) {
+            strength--;
+            millis = millis / 2;
+        }
+        LOG.info("Calibrated BCrypt strength {} (~{} ms per verify, target {} ms)", strength, Math.round(millis), targetMillis);
+        return strength;
+    }
+
+    private static double measureMillis(final int strength, final int samples) {
+        final BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        final String hash = encoder.encode(PROBE_PASSWORD);
+        final long[] nanos = new long[samples];
+        for (int i = 0; i < samples; i++) {
+            final long start = System.nanoTime();
+            encoder.matches(PROBE_PASSWORD, hash);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[samples / 2] / 1_000_000d;
+    }
+}
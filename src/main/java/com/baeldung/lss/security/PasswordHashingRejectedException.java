@@ -0,0 +1,19 @@
+package com.baeldung.lss.security;
+
+/**
+ * Thrown when the password hashing queue is full; surfaced to the client as a 503 with a Retry-After header.
+ */
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashingRejectedException(final long retryAfterSeconds) {
+        super("Password hashing queue is full");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+}
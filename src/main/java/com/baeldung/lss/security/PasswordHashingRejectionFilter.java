@@ -0,0 +1,47 @@
+package com.baeldung.lss.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Turns a {@link PasswordHashingRejectedException} raised anywhere further down the chain, whether from the login
+ * filter or from a controller, into a 503 with Retry-After instead of a 500.
+ */
+public class PasswordHashingRejectionFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            final PasswordHashingRejectedException rejection = findRejection(e);
+            if (rejection == null || response.isCommitted()) {
+                throw e;
+            }
+            // written directly rather than through sendError, whose /error dispatch would run the security chain again
+            response.reset();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(rejection.getRetryAfterSeconds()));
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write(rejection.getMessage());
+        }
+    }
+
+    private PasswordHashingRejectedException findRejection(Throwable e) {
+        while (e != null) {
+            if (e instanceof PasswordHashingRejectedException) {
+                return (PasswordHashingRejectedException) e;
+            }
+            e = e.getCause();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,128 @@
+package com.baeldung.lss.security;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.web.authentication.rememberme.AbstractRememberMeServices;
+import org.springframework.security.web.authentication.rememberme.InvalidCookieException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Stateless remember-me: the cookie carries {@code v1:userId:email:expiry:credentialEpoch:signature}, signed with
+ * HMAC-SHA256, and is validated without touching the remember-me table. The user details come from the (cached)
+ * {@link UserDetailsService}; the cookie is rejected if the account id or the credential epoch no longer match,
+ * so a password change or a re-created account with the same email revokes every cookie issued before it.
+ * <p>
+ * Cookies are always signed with the current key. During a key rotation, cookies signed with the previous key are
+ * still accepted until {@code previousKeyValidUntil}.
+ */
+public class SignedRememberMeServices extends AbstractRememberMeServices {
+
+    private static final String VERSION = "v1";
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec signingKey;
+    private final SecretKeySpec previousSigningKey;
+    private final Instant previousKeyValidUntil;
+
+    public SignedRememberMeServices(final String key, final UserDetailsService userDetailsService, final String signingKey,
+                                    final String previousSigningKey, final Instant previousKeyValidUntil) {
+        super(key, userDetailsService);
+        if (signingKey == null || signingKey.isEmpty()) {
+            throw new IllegalArgumentException("A remember-me signing key is required");
+        }
+        this.signingKey = new SecretKeySpec(signingKey.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.previousSigningKey = previousSigningKey == null || previousSigningKey.isEmpty()
+                ? null
+                : new SecretKeySpec(previousSigningKey.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.previousKeyValidUntil = previousKeyValidUntil;
+    }
+
+    @Override
+    protected void onLoginSuccess(HttpServletRequest request, HttpServletResponse response, Authentication successfulAuthentication) {
+        final Object principal = successfulAuthentication.getPrincipal();
+        if (!(principal instanceof LssUserDetails)) {
+            logger.debug("Principal carries no account id, remember-me cookie not issued");
+            return;
+        }
+        final LssUserDetails user = (LssUserDetails) principal;
+        final long expiry = Instant.now().getEpochSecond() + getTokenValiditySeconds();
+        final String[] tokens = {
+                VERSION,
+                String.valueOf(user.getId()),
+                user.getUsername(),
+                String.valueOf(expiry),
+                String.valueOf(user.getCredentialEpoch()),
+                null
+        };
+        tokens[5] = Base64.getUrlEncoder().withoutPadding().encodeToString(sign(signingKey, payload(tokens)));
+        setCookie(tokens, getTokenValiditySeconds(), request, response);
+    }
+
+    @Override
+    protected UserDetails processAutoLoginCookie(String[] cookieTokens, HttpServletRequest request, HttpServletResponse response) {
+        if (cookieTokens.length != 6 || !VERSION.equals(cookieTokens[0])) {
+            throw new InvalidCookieException("Unsupported remember-me cookie format");
+        }
+        final byte[] signature;
+        final long userId;
+        final long expiry;
+        final int credentialEpoch;
+        try {
+            signature = Base64.getUrlDecoder().decode(cookieTokens[5]);
+            userId = Long.parseLong(cookieTokens[1]);
+            expiry = Long.parseLong(cookieTokens[3]);
+            credentialEpoch = Integer.parseInt(cookieTokens[4]);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCookieException("Malformed remember-me cookie");
+        }
+        if (!isSignatureValid(payload(cookieTokens), signature)) {
+            throw new InvalidCookieException("Remember-me cookie signature is not valid");
+        }
+        if (expiry < Instant.now().getEpochSecond()) {
+            throw new InvalidCookieException("Remember-me cookie has expired");
+        }
+
+        final UserDetails user = getUserDetailsService().loadUserByUsername(cookieTokens[2]);
+        if (!(user instanceof LssUserDetails)
+                || ((LssUserDetails) user).getId() == null
+                || ((LssUserDetails) user).getId() != userId
+                || ((LssUserDetails) user).getCredentialEpoch() != credentialEpoch) {
+            throw new InvalidCookieException("Remember-me cookie was revoked");
+        }
+        return user;
+    }
+
+    private boolean isSignatureValid(final String payload, final byte[] signature) {
+        if (MessageDigest.isEqual(sign(signingKey, payload), signature)) {
+            return true;
+        }
+        return previousSigningKey != null
+                && previousKeyValidUntil != null
+                && Instant.now().isBefore(previousKeyValidUntil)
+                && MessageDigest.isEqual(sign(previousSigningKey, payload), signature);
+    }
+
+    private String payload(final String[] tokens) {
+        return String.join(":", tokens[0], tokens[1], tokens[2], tokens[3], tokens[4]);
+    }
+
+    private byte[] sign(final SecretKeySpec key, final String payload) {
+        try {
+            final Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.baeldung.lss.security;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Verification and reset tokens are 16 random bytes, stored as a fixed-width binary key and sent out as 22
+ * URL-safe base64 characters. Links mailed before the switch carry a 36-character UUID; those decode to the same
+ * 16 bytes the migration wrote for them.
+ */
+public final class Tokens {
+
+    public static final int LENGTH = 16;
+
+    private static final int ENCODED_LENGTH = 22;
+    private static final int UUID_LENGTH = 36;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private Tokens() {
+    }
+
+    public static byte[] newToken() {
+        final byte[] token = new byte[LENGTH];
+        RANDOM.nextBytes(token);
+        return token;
+    }
+
+    public static String encode(final byte[] token) {
+        return ENCODER.encodeToString(token);
+    }
+
+    /**
+     * @return the binary key, or {@code null} when the value is not a token in either format
+     */
+    public static byte[] decode(final String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            if (value.length() == ENCODED_LENGTH) {
+                return DECODER.decode(value);
+            }
+            if (value.length() == UUID_LENGTH) {
+                return fromUuid(value);
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return null;
+    }
+
+    public static byte[] fromUuid(final String uuid) {
+        final UUID parsed = UUID.fromString(uuid);
+        return ByteBuffer.allocate(LENGTH)
+                .putLong(parsed.getMostSignificantBits())
+                .putLong(parsed.getLeastSignificantBits())
+                .array();
+    }
+}
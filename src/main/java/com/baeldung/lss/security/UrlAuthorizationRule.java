@@ -0,0 +1,114 @@
+package com.baeldung.lss.security;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.ExpressionUrlAuthorizationConfigurer;
+
+/**
+ * One line of the URL authorization table. The table is declared once and applied either to the
+ * {@code authorizeRequests()} chain or to an {@link IndexedRequestAuthorizationManager}, so both modes enforce the same
+ * rules in the same order.
+ */
+public final class UrlAuthorizationRule {
+
+    private enum Access { PERMIT_ALL, AUTHENTICATED, HAS_AUTHORITY, HAS_ANY_AUTHORITY }
+
+    private final HttpMethod method;
+    // null for anyRequest()
+    private final String[] patterns;
+    private final Access access;
+    private final String[] authorities;
+
+    private UrlAuthorizationRule(final Matcher matcher, final Access access, final String... authorities) {
+        this.method = matcher.method;
+        this.patterns = matcher.patterns;
+        this.access = access;
+        this.authorities = authorities;
+    }
+
+    public static Matcher antMatchers(final String... patterns) {
+        return new Matcher(null, patterns);
+    }
+
+    public static Matcher antMatchers(final HttpMethod method, final String... patterns) {
+        return new Matcher(method, patterns);
+    }
+
+    public static Matcher anyRequest() {
+        return new Matcher(null, null);
+    }
+
+    public void applyTo(final ExpressionUrlAuthorizationConfigurer<HttpSecurity>.ExpressionInterceptUrlRegistry registry) {
+        final ExpressionUrlAuthorizationConfigurer<HttpSecurity>.AuthorizedUrl url;
+        if (patterns == null) {
+            url = registry.anyRequest();
+        } else {
+            url = method == null ? registry.antMatchers(patterns) : registry.antMatchers(method, patterns);
+        }
+        switch (access) {
+            case PERMIT_ALL:
+                url.permitAll();
+                break;
+            case AUTHENTICATED:
+                url.authenticated();
+                break;
+            case HAS_AUTHORITY:
+                url.hasAuthority(authorities[0]);
+                break;
+            default:
+                url.hasAnyAuthority(authorities);
+        }
+    }
+
+    public void applyTo(final IndexedRequestAuthorizationManager.Builder builder) {
+        final IndexedRequestAuthorizationManager.RuleBuilder rule;
+        if (patterns == null) {
+            rule = builder.anyRequest();
+        } else {
+            rule = method == null ? builder.antMatchers(patterns) : builder.antMatchers(method, patterns);
+        }
+        switch (access) {
+            case PERMIT_ALL:
+                rule.permitAll();
+                break;
+            case AUTHENTICATED:
+                rule.authenticated();
+                break;
+            case HAS_AUTHORITY:
+                rule.hasAuthority(authorities[0]);
+                break;
+            default:
+                rule.hasAnyAuthority(authorities);
+        }
+    }
+
+    /**
+     * The requests a rule applies to; the access decision completes it.
+     */
+    public static final class Matcher {
+
+        private final HttpMethod method;
+        private final String[] patterns;
+
+        private Matcher(final HttpMethod method, final String[] patterns) {
+            this.method = method;
+            this.patterns = patterns;
+        }
+
+        public UrlAuthorizationRule permitAll() {
+            return new UrlAuthorizationRule(this, Access.PERMIT_ALL);
+        }
+
+        public UrlAuthorizationRule authenticated() {
+            return new UrlAuthorizationRule(this, Access.AUTHENTICATED);
+        }
+
+        public UrlAuthorizationRule hasAuthority(final String authority) {
+            return new UrlAuthorizationRule(this, Access.HAS_AUTHORITY, authority);
+        }
+
+        public UrlAuthorizationRule hasAnyAuthority(final String... authorities) {
+            return new UrlAuthorizationRule(this, Access.HAS_ANY_AUTHORITY, authorities);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.baeldung.lss.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers, for a short window, that a (email, presented password, stored hash) triple was already verified, so a
+ * repeated login with the same credentials costs a map lookup instead of a BCrypt verify. Only a keyed HMAC of the
+ * triple is kept; the key is generated per process and never leaves memory. Since the stored hash is part of the
+ * MAC, any password change invalidates the entry by itself.
+ */
+@Component
+@ManagedResource(objectName = "com.baeldung.lss:type=VerifiedCredentialCache")
+public class VerifiedCredentialCache {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final boolean enabled;
+    private final SecretKeySpec key;
+    private final Cache<String, byte[]> verified;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @Autowired
+    public VerifiedCredentialCache(@Value("${lss.auth.verified-credential-cache.enabled:false}") boolean enabled,
+                                   @Value("${lss.auth.verified-credential-cache.ttl-seconds:30}") long ttlSeconds,
+                                   @Value("${lss.auth.verified-credential-cache.maximum-size:10000}") long maximumSize) {
+        this.enabled = enabled;
+        final byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+        this.verified = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isVerified(final String email, final String presentedPassword, final String storedHash) {
+        final byte[] cached = verified.getIfPresent(email);
+        if (cached != null && MessageDigest.isEqual(cached, mac(email, presentedPassword, storedHash))) {
+            hits.increment();
+            return true;
+        }
+        misses.increment();
+        return false;
+    }
+
+    public void markVerified(final String email, final String presentedPassword, final String storedHash) {
+        verified.put(email, mac(email, presentedPassword, storedHash));
+    }
+
+    public void evict(final String email) {
+        if (email != null) {
+            verified.invalidate(email);
+        }
+    }
+
+    private byte[] mac(final String email, final String presentedPassword, final String storedHash) {
+        try {
+            final Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            for (String part : new String[] { email, presentedPassword, storedHash }) {
+                final byte[] bytes = part.getBytes(StandardCharsets.UTF_8);
+                mac.update((byte) (bytes.length >>> 24));
+                mac.update((byte) (bytes.length >>> 16));
+                mac.update((byte) (bytes.length >>> 8));
+                mac.update((byte) bytes.length);
+                mac.update(bytes);
+            }
+            return mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @ManagedAttribute
+    public long getSize() {
+        return verified.size();
+    }
+
+    @ManagedAttribute
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @ManagedAttribute
+    public long getMissCount() {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,35 @@
+package com.baeldung.lss.security;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * {@link DaoAuthenticationProvider} that skips the password verify for credentials found in the
+ * {@link VerifiedCredentialCache}. Account status checks still run on every login.
+ */
+public class VerifiedCredentialCacheAuthenticationProvider extends DaoAuthenticationProvider {
+
+    private final VerifiedCredentialCache verifiedCredentialCache;
+
+    public VerifiedCredentialCacheAuthenticationProvider(final VerifiedCredentialCache verifiedCredentialCache) {
+        this.verifiedCredentialCache = verifiedCredentialCache;
+    }
+
+    @Override
+    protected void additionalAuthenticationChecks(UserDetails userDetails, UsernamePasswordAuthenticationToken authentication)
+            throws AuthenticationException {
+        if (authentication.getCredentials() == null || userDetails.getPassword() == null) {
+            super.additionalAuthenticationChecks(userDetails, authentication);
+            return;
+        }
+        final String email = userDetails.getUsername();
+        final String presentedPassword = authentication.getCredentials().toString();
+        if (verifiedCredentialCache.isVerified(email, presentedPassword, userDetails.getPassword())) {
+            return;
+        }
+        super.additionalAuthenticationChecks(userDetails, authentication);
+        verifiedCredentialCache.markVerified(email, presentedPassword, userDetails.getPassword());
+    }
+}
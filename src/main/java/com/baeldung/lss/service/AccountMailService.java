@@ -0,0 +1,42 @@
+package com.baeldung.lss.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.stereotype.Service;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Builds the mails that carry account tokens. They are only built here; {@link MailOutbox} sends them.
+ */
+@Service
+public class AccountMailService {
+
+    private final String from;
+
+    public AccountMailService(@Value("${support.email}") final String from) {
+        this.from = from;
+    }
+
+    // the links in the mails point back at the host and context the request came in on
+    public static String appUrl(final HttpServletRequest request) {
+        return "http://" + request.getServerName() + ":" + request.getServerPort() + request.getContextPath();
+    }
+
+    public SimpleMailMessage registrationConfirmation(final String appUrl, final String recipient, final String token) {
+        return mail(recipient, "Registration Confirmation", appUrl + "/registrationConfirm?token=" + token);
+    }
+
+    public SimpleMailMessage passwordReset(final String appUrl, final String recipient, final long userId, final String token) {
+        return mail(recipient, "Reset Password", appUrl + "/user/changePassword?id=" + userId + "&token=" + token);
+    }
+
+    private SimpleMailMessage mail(final String recipient, final String subject, final String url) {
+        final SimpleMailMessage email = new SimpleMailMessage();
+        email.setTo(recipient);
+        email.setSubject(subject);
+        email.setText("Please open the following URL to verify your account: \r\n" + url);
+        email.setFrom(from);
+        return email;
+    }
+}
@@ -0,0 +1,186 @@
+package com.baeldung.lss.service;
+
+import com.baeldung.lss.persistence.MailOutboxRepository;
+import com.baeldung.lss.persistence.UserRepository;
+import com.baeldung.lss.persistence.VerificationTokenRepository;
+import com.baeldung.lss.web.model.MailOutboxMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Periodically removes expired verification and reset tokens, unconfirmed accounts whose registration token has
+ * expired, remember-me rows that can no longer be used and dead outbox mail past its retention. Rows are selected through the expiry indexes and deleted
+ * in bounded batches, each in its own short transaction, with a pause in between so no run holds long locks.
+ */
+@Service
+@ConditionalOnProperty(name = "lss.maintenance.enabled", havingValue = "true", matchIfMissing = true)
+@ManagedResource(objectName = "com.baeldung.lss:type=AccountMaintenance")
+public class AccountMaintenanceService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AccountMaintenanceService.class);
+
+    private static final String STALE_REMEMBER_ME_SQL = "select series from persistent_logins where last_used < ?";
+    private static final String DELETE_REMEMBER_ME_SQL = "delete from persistent_logins where series in (:series)";
+
+    private final UserRepository userRepository;
+    private final VerificationTokenRepository verificationTokenRepository;
+    private final PasswordResetTokenRepository passwordResetTokenRepository;
+    private final MailOutboxRepository mailOutboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Value("${lss.maintenance.batch-size:500}")
+    private int batchSize;
+    @Value("${lss.maintenance.pause-ms:200}")
+    private long pauseMillis;
+    @Value("${lss.maintenance.remember-me-validity-seconds:604800}")
+    private long rememberMeValiditySeconds;
+    @Value("${lss.maintenance.dead-mail-retention-days:14}")
+    private long deadMailRetentionDays;
+
+    private final AtomicLong lastRunMillis = new AtomicLong();
+    private final AtomicLong lastUnverifiedUsers = new AtomicLong();
+    private final AtomicLong lastVerificationTokens = new AtomicLong();
+    private final AtomicLong lastPasswordResetTokens = new AtomicLong();
+    private final AtomicLong lastRememberMeTokens = new AtomicLong();
+    private final AtomicLong lastDeadMails = new AtomicLong();
+    private final AtomicLong totalRowsRemoved = new AtomicLong();
+
+    @Autowired
+    public AccountMaintenanceService(UserRepository userRepository, VerificationTokenRepository verificationTokenRepository,
+                                     PasswordResetTokenRepository passwordResetTokenRepository, MailOutboxRepository mailOutboxRepository,
+                                     PlatformTransactionManager transactionManager, DataSource dataSource) {
+        this.userRepository = userRepository;
+        this.verificationTokenRepository = verificationTokenRepository;
+        this.passwordResetTokenRepository = passwordResetTokenRepository;
+        this.mailOutboxRepository = mailOutboxRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    @Scheduled(initialDelayString = "${lss.maintenance.initial-delay-ms:60000}", fixedDelayString = "${lss.maintenance.interval-ms:3600000}")
+    @ManagedOperation
+    public void purge() {
+        final long start = System.nanoTime();
+        final Date now = new Date();
+        final Pageable batch = PageRequest.of(0, batchSize);
+
+        // unconfirmed accounts first, so that their tokens go with them
+        final long users = inBatches(() -> {
+            final List<Long> userIds = verificationTokenRepository.findUnverifiedUserIdsWithExpiredToken(now, batch);
+            if (userIds.isEmpty()) {
+                return 0;
+            }
+            passwordResetTokenRepository.deleteByUserIdIn(userIds);
+            verificationTokenRepository.deleteByUserIdIn(userIds);
+            return userRepository.deleteUnverifiedByIdIn(userIds);
+        });
+        final long verificationTokens = inBatches(() -> {
+            final List<Long> ids = verificationTokenRepository.findExpiredIds(now, batch);
+            return ids.isEmpty() ? 0 : verificationTokenRepository.deleteByIdIn(ids);
+        });
+        final long passwordResetTokens = inBatches(() -> {
+            final List<Long> ids = passwordResetTokenRepository.findExpiredIds(now, batch);
+            return ids.isEmpty() ? 0 : passwordResetTokenRepository.deleteByIdIn(ids);
+        });
+        final Timestamp rememberMeCutoff = new Timestamp(now.getTime() - TimeUnit.SECONDS.toMillis(rememberMeValiditySeconds));
+        final long rememberMeTokens = inBatches(() -> {
+            jdbcTemplate.setMaxRows(batchSize);
+            final List<String> series = jdbcTemplate.queryForList(STALE_REMEMBER_ME_SQL, String.class, rememberMeCutoff);
+            return series.isEmpty() ? 0 : namedParameterJdbcTemplate.update(DELETE_REMEMBER_ME_SQL, new MapSqlParameterSource("series", series));
+        });
+        final Date deadMailCutoff = new Date(now.getTime() - TimeUnit.DAYS.toMillis(deadMailRetentionDays));
+        final long deadMails = inBatches(() -> {
+            final List<Long> ids = mailOutboxRepository.findIdsByStatusBefore(MailOutboxMessage.Status.DEAD, deadMailCutoff, batch);
+            return ids.isEmpty() ? 0 : mailOutboxRepository.deleteByIdIn(ids);
+        });
+
+        lastUnverifiedUsers.set(users);
+        lastVerificationTokens.set(verificationTokens);
+        lastPasswordResetTokens.set(passwordResetTokens);
+        lastRememberMeTokens.set(rememberMeTokens);
+        lastDeadMails.set(deadMails);
+        totalRowsRemoved.addAndGet(users + verificationTokens + passwordResetTokens + rememberMeTokens + deadMails);
+        lastRunMillis.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        LOG.info("Purged {} unconfirmed accounts, {} verification tokens, {} reset tokens, {} remember-me tokens, {} dead mails in {} ms",
+                users, verificationTokens, passwordResetTokens, rememberMeTokens, deadMails, lastRunMillis.get());
+    }
+
+    // runs one batch per transaction until a batch comes back short
+    private long inBatches(final Supplier<Integer> batch) {
+        long removed = 0;
+        while (true) {
+            final Integer deleted = transactionTemplate.execute(status -> batch.get());
+            removed += deleted == null ? 0 : deleted;
+            if (deleted == null || deleted < batchSize) {
+                return removed;
+            }
+            try {
+                Thread.sleep(pauseMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return removed;
+            }
+        }
+    }
+
+    @ManagedAttribute
+    public long getLastRunMillis() {
+        return lastRunMillis.get();
+    }
+
+    @ManagedAttribute
+    public long getLastUnverifiedUsersRemoved() {
+        return lastUnverifiedUsers.get();
+    }
+
+    @ManagedAttribute
+    public long getLastVerificationTokensRemoved() {
+        return lastVerificationTokens.get();
+    }
+
+    @ManagedAttribute
+    public long getLastPasswordResetTokensRemoved() {
+        return lastPasswordResetTokens.get();
+    }
+
+    @ManagedAttribute
+    public long getLastRememberMeTokensRemoved() {
+        return lastRememberMeTokens.get();
+    }
+
+    @ManagedAttribute
+    public long getLastDeadMailsRemoved() {
+        return lastDeadMails.get();
+    }
+
+    @ManagedAttribute
+    public long getTotalRowsRemoved() {
+        return totalRowsRemoved.get();
+    }
+}
@@ -4,18 +4,23 @@ import com.baeldung.lss.validation.EmailExistsException;
 import com.baeldung.lss.web.model.PasswordResetToken;
 import com.baeldung.lss.web.model.User;
 import com.baeldung.lss.web.model.VerificationToken;
+import org.springframework.mail.SimpleMailMessage;
 
 public interface IUserService {
 
     User registerNewUser(User user) throws EmailExistsException;
 
+    User registerNewUser(User user, byte[] verificationToken, SimpleMailMessage confirmation) throws EmailExistsException;
+
     User updateExistingUser(User user) throws EmailExistsException;
 
     void saveRegisteredUser(User user);
-    VerificationToken getVerificationToken(String token);
-    void createPasswordResetTokenForUser(User user, String token);
+    VerificationToken getVerificationToken(byte[] token);
+    void createPasswordResetTokenForUser(User user, byte[] token, SimpleMailMessage resetMail);
     User findUserByEmail(String email);
-    PasswordResetToken getPasswordResetToken(String token);
+    PasswordResetToken getPasswordResetToken(byte[] token);
 
     void changeUserPassword(User user, String password);
+
+    void deleteUser(Long id);
 }
@@ -0,0 +1,233 @@
+package com.baeldung.lss.service;
+
+import com.baeldung.lss.persistence.MailOutboxRepository;
+import com.baeldung.lss.web.model.MailOutboxMessage;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.MailSender;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import javax.transaction.Transactional;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transactional outbox for outgoing mail. Callers enqueue inside the transaction that writes the rows the mail
+ * refers to, so a mail exists exactly when its user or token does, and the request never waits on SMTP.
+ * <p>
+ * The dispatcher claims due messages under row locks, pushing their next attempt out by a lease so a crashed node
+ * only delays them, and sends each batch over a single connection. Failures back off exponentially until the
+ * attempt limit, after which the message is kept as dead for inspection.
+ */
+@Service
+@ManagedResource(objectName = "com.baeldung.lss:type=MailOutbox")
+public class MailOutbox {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MailOutbox.class);
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private static final String INSERT_SQL = "insert into MailOutboxMessage (status, recipients, sender, subject, text, attempts, "
+            + "nextAttemptAt, createdAt) values (?, ?, ?, ?, ?, 0, ?, ?)";
+
+    private final MailOutboxRepository outboxRepository;
+    private final MailSender mailSender;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    // one SMTP round per batch, so the latency is per batch
+    private final Timer sendSuccess;
+    private final Timer sendPartial;
+    private final Timer sendFailure;
+
+    @Value("${lss.mail.outbox.batch-size:50}")
+    private int batchSize;
+    @Value("${lss.mail.outbox.max-attempts:8}")
+    private int maxAttempts;
+    @Value("${lss.mail.outbox.backoff-base-ms:30000}")
+    private long backoffBaseMillis;
+    @Value("${lss.mail.outbox.backoff-max-ms:3600000}")
+    private long backoffMaxMillis;
+    @Value("${lss.mail.outbox.lease-ms:300000}")
+    private long leaseMillis;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+    private final AtomicLong dead = new AtomicLong();
+    private final AtomicLong lastBatchSize = new AtomicLong();
+    private final AtomicLong lastBatchMillis = new AtomicLong();
+
+    @Autowired
+    public MailOutbox(MailOutboxRepository outboxRepository, MailSender mailSender, PlatformTransactionManager transactionManager,
+                      DataSource dataSource, MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.mailSender = mailSender;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.sendSuccess = Timer.builder("lss.mail.send").tag("outcome", "success").register(meterRegistry);
+        this.sendPartial = Timer.builder("lss.mail.send").tag("outcome", "partial").register(meterRegistry);
+        this.sendFailure = Timer.builder("lss.mail.send").tag("outcome", "failure").register(meterRegistry);
+        FunctionCounter.builder("lss.mail.messages", sent, AtomicLong::get).tag("outcome", "sent").register(meterRegistry);
+        FunctionCounter.builder("lss.mail.messages", failedAttempts, AtomicLong::get).tag("outcome", "failed").register(meterRegistry);
+        FunctionCounter.builder("lss.mail.messages", dead, AtomicLong::get).tag("outcome", "dead").register(meterRegistry);
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void enqueue(final SimpleMailMessage message) {
+        outboxRepository.save(new MailOutboxMessage(message));
+    }
+
+    // for bulk callers: one JDBC batch instead of an insert per message
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void enqueueAll(final List<SimpleMailMessage> messages) {
+        final Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.batchUpdate(INSERT_SQL, messages, messages.size(), (ps, message) -> {
+            final MailOutboxMessage row = new MailOutboxMessage(message);
+            ps.setString(1, row.getStatus().name());
+            ps.setString(2, row.getRecipients());
+            ps.setString(3, row.getSender());
+            ps.setString(4, row.getSubject());
+            ps.setString(5, row.getText());
+            ps.setTimestamp(6, now);
+            ps.setTimestamp(7, now);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${lss.mail.outbox.poll-interval-ms:1000}")
+    public void dispatch() {
+        List<MailOutboxMessage> batch;
+        do {
+            batch = claim();
+            if (!batch.isEmpty()) {
+                send(batch);
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    private List<MailOutboxMessage> claim() {
+        final List<MailOutboxMessage> batch = transactionTemplate.execute(status -> {
+            final Date now = new Date();
+            final List<MailOutboxMessage> due = outboxRepository.findDueForUpdate(MailOutboxMessage.Status.PENDING, now, PageRequest.of(0, batchSize));
+            final Date leaseEnd = new Date(now.getTime() + leaseMillis);
+            due.forEach(message -> message.setNextAttemptAt(leaseEnd));
+            return due;
+        });
+        return batch == null ? Collections.emptyList() : batch;
+    }
+
+    private void send(final List<MailOutboxMessage> batch) {
+        final SimpleMailMessage[] messages = batch.stream().map(MailOutboxMessage::toMailMessage).toArray(SimpleMailMessage[]::new);
+        Map<Object, Exception> failures = Collections.emptyMap();
+        final long start = System.nanoTime();
+        try {
+            mailSender.send(messages);
+        } catch (MailSendException e) {
+            failures = e.getFailedMessages().isEmpty() ? failAll(messages, e) : e.getFailedMessages();
+        } catch (MailException e) {
+            // could not even connect or authenticate: the whole batch failed the same way
+            failures = failAll(messages, e);
+        }
+        final long elapsed = System.nanoTime() - start;
+        lastBatchMillis.set(TimeUnit.NANOSECONDS.toMillis(elapsed));
+        lastBatchSize.set(batch.size());
+        final Timer outcome = failures.isEmpty() ? sendSuccess : failures.size() < messages.length ? sendPartial : sendFailure;
+        outcome.record(elapsed, TimeUnit.NANOSECONDS);
+
+        final Map<Object, Exception> failed = failures;
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < batch.size(); i++) {
+                final Exception failure = failed.get(messages[i]);
+                if (failure == null) {
+                    outboxRepository.deleteById(batch.get(i).getId());
+                    sent.incrementAndGet();
+                } else {
+                    recordFailure(batch.get(i), failure);
+                }
+            }
+        });
+    }
+
+    private static Map<Object, Exception> failAll(final SimpleMailMessage[] messages, final Exception cause) {
+        final Map<Object, Exception> failures = new HashMap<>();
+        for (SimpleMailMessage message : messages) {
+            failures.put(message, cause);
+        }
+        return failures;
+    }
+
+    private void recordFailure(final MailOutboxMessage message, final Exception failure) {
+        failedAttempts.incrementAndGet();
+        final int attempts = message.getAttempts() + 1;
+        message.setAttempts(attempts);
+        final String error = String.valueOf(failure.getMessage());
+        message.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+        if (attempts >= maxAttempts) {
+            message.setStatus(MailOutboxMessage.Status.DEAD);
+            // from now on the time it was given up, which the retention of dead messages counts from
+            message.setNextAttemptAt(new Date());
+            dead.incrementAndGet();
+            LOG.warn("Giving up on mail {} to {} after {} attempts: {}", message.getId(), message.getRecipients(), attempts, error);
+        } else {
+            final long delay = Math.min(backoffMaxMillis, backoffBaseMillis << Math.min(attempts - 1, 20));
+            message.setNextAttemptAt(new Date(System.currentTimeMillis() + delay));
+        }
+        outboxRepository.save(message);
+    }
+
+    @ManagedAttribute
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    @ManagedAttribute
+    public long getFailedAttemptCount() {
+        return failedAttempts.get();
+    }
+
+    @ManagedAttribute
+    public long getDeadCount() {
+        return dead.get();
+    }
+
+    @ManagedAttribute
+    public long getPendingCount() {
+        return outboxRepository.countByStatus(MailOutboxMessage.Status.PENDING);
+    }
+
+    @ManagedAttribute
+    public long getLastBatchSize() {
+        return lastBatchSize.get();
+    }
+
+    @ManagedAttribute
+    public long getLastBatchMillis() {
+        return lastBatchMillis.get();
+    }
+
+    @ManagedAttribute
+    public double getLastBatchMessagesPerSecond() {
+        final long millis = lastBatchMillis.get();
+        return millis == 0 ? 0 : lastBatchSize.get() * 1000d / millis;
+    }
+}
@@ -1,10 +1,29 @@
 package com.baeldung.lss.service;
 
 import com.baeldung.lss.web.model.PasswordResetToken;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 
 public interface PasswordResetTokenRepository extends JpaRepository<PasswordResetToken, Long> {
-    PasswordResetToken findByToken(String token);
+    PasswordResetToken findByToken(byte[] token);
 
     PasswordResetToken findByUserId(Long userId);
-}
\ No newline at end of file
+
+    @Query("select t.id from PasswordResetToken t where t.expiryDate < :now order by t.expiryDate")
+    List<Long> findExpiredIds(@Param("now") Date now, Pageable pageable);
+
+    @Modifying
+    @Query("delete from PasswordResetToken t where t.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("delete from PasswordResetToken t where t.user.id in :userIds")
+    int deleteByUserIdIn(@Param("userIds") Collection<Long> userIds);
+}
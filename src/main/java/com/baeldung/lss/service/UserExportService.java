@@ -0,0 +1,112 @@
+package com.baeldung.lss.service;
+
+import com.baeldung.lss.persistence.UserExportRow;
+import com.baeldung.lss.persistence.UserRepository;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.format.DateTimeFormatter;
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes every account to the given writer as CSV or NDJSON, row by row from a database cursor. Memory use does not
+ * depend on the number of accounts; the writer is flushed every {@code lss.export.flush-every} rows so the client
+ * receives the export as it is produced.
+ */
+@Service
+public class UserExportService {
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final UserRepository userRepository;
+
+    @Value("${lss.export.flush-every:1000}")
+    private int flushEvery;
+
+    @Autowired
+    public UserExportService(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @Transactional(readOnly = true)
+    public long export(final Format format, final Writer writer) throws IOException {
+        long rows = 0;
+        try (Stream<UserExportRow> stream = userRepository.streamAllForExport()) {
+            final JsonGenerator json = format == Format.NDJSON ? JSON.createGenerator(writer) : null;
+            if (json != null) {
+                // one object per line, each terminated by the newline written after it
+                json.setRootValueSeparator(null);
+            }
+            if (format == Format.CSV) {
+                writer.write("id,email,enabled,created\n");
+            }
+            final Iterator<UserExportRow> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                final UserExportRow row = iterator.next();
+                if (json != null) {
+                    writeJson(json, row);
+                } else {
+                    writeCsv(writer, row);
+                }
+                if (++rows % flushEvery == 0) {
+                    if (json != null) {
+                        json.flush();
+                    }
+                    writer.flush();
+                }
+            }
+            if (json != null) {
+                json.flush();
+            }
+            writer.flush();
+        }
+        return rows;
+    }
+
+    private static void writeCsv(final Writer writer, final UserExportRow row) throws IOException {
+        writer.write(String.valueOf(row.getId()));
+        writer.write(',');
+        writer.write(csvField(row.getEmail()));
+        writer.write(',');
+        writer.write(String.valueOf(Boolean.TRUE.equals(row.getEnabled())));
+        writer.write(',');
+        writer.write(format(row.getCreated()));
+        writer.write('\n');
+    }
+
+    private static void writeJson(final JsonGenerator json, final UserExportRow row) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("id", row.getId());
+        json.writeStringField("email", row.getEmail());
+        json.writeBooleanField("enabled", Boolean.TRUE.equals(row.getEnabled()));
+        json.writeStringField("created", format(row.getCreated()));
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    private static String csvField(final String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String format(final Calendar calendar) {
+        return calendar == null ? "" : DateTimeFormatter.ISO_INSTANT.format(calendar.toInstant());
+    }
+}
@@ -0,0 +1,53 @@
+package com.baeldung.lss.service;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import. Only the first failures are listed; {@link #getFailed()} counts all of them.
+ */
+@Getter
+public class UserImportResult {
+
+    private static final int MAX_LISTED_FAILURES = 1000;
+
+    private long imported;
+    private long failed;
+    private long millis;
+    private final List<Failure> failures = new ArrayList<>();
+
+    void imported(final int rows) {
+        imported += rows;
+    }
+
+    void failed(final long line, final String email, final String reason) {
+        failed++;
+        if (failures.size() < MAX_LISTED_FAILURES) {
+            failures.add(new Failure(line, email, reason));
+        }
+    }
+
+    void finished(final long millis) {
+        this.millis = millis;
+    }
+
+    public double getRowsPerSecond() {
+        return millis == 0 ? 0 : imported * 1000d / millis;
+    }
+
+    @Getter
+    public static class Failure {
+
+        private final long line;
+        private final String email;
+        private final String reason;
+
+        Failure(final long line, final String email, final String reason) {
+            this.line = line;
+            this.email = email;
+            this.reason = reason;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.baeldung.lss.service;
+
+import com.baeldung.lss.persistence.UserRepository;
+import com.baeldung.lss.persistence.UserSummary;
+import com.baeldung.lss.security.Tokens;
+import com.baeldung.lss.web.model.User;
+import com.baeldung.lss.web.model.VerificationToken;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Creates accounts in bulk from {@code email,password} lines. The input is read and committed in chunks, so a file
+ * of any size is imported with bounded memory. Within a chunk the passwords are hashed in parallel on a fork/join
+ * pool, and users, verification tokens and confirmation mails are written with JDBC batches. Bad rows are reported
+ * and skipped; they never abort the run.
+ * <p>
+ * {@code User.id} stays an identity column: that only keeps Hibernate from batching, and these inserts bypass it.
+ */
+@Service
+public class UserImportService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserImportService.class);
+
+    private static final int MAX_EMAIL_LENGTH = 255;
+    private static final int HASH_THRESHOLD = 4;
+
+    private final UserRepository userRepository;
+    private final PasswordEncoder hashingPasswordEncoder;
+    private final MailOutbox mailOutbox;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ForkJoinPool hashingPool;
+
+    @Value("${lss.import.chunk-size:1000}")
+    private int chunkSize;
+
+    private final String insertUserSql;
+    private final String insertTokenSql;
+
+    @Autowired
+    public UserImportService(UserRepository userRepository, @Qualifier("hashingPasswordEncoder") PasswordEncoder hashingPasswordEncoder,
+                             MailOutbox mailOutbox, DataSource dataSource, PlatformTransactionManager transactionManager,
+                             EntityManagerFactory entityManagerFactory, @Value("${lss.import.hashing-parallelism:0}") int parallelism) {
+        this.userRepository = userRepository;
+        this.hashingPasswordEncoder = hashingPasswordEncoder;
+        this.mailOutbox = mailOutbox;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.hashingPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        final SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.insertUserSql = insertSql(sessionFactory, User.class, "email", "password", "created", "enabled", "credentialEpoch");
+        this.insertTokenSql = insertSql(sessionFactory, VerificationToken.class, "token", "user", "expiryDate");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashingPool.shutdownNow();
+    }
+
+    /**
+     * @param confirm           create the accounts disabled, each with a verification token and a queued confirmation mail
+     * @param confirmationMail  builds the mail for an email address and an encoded token; only used with {@code confirm}
+     */
+    public UserImportResult importUsers(final Reader input, final boolean confirm,
+                                        final BiFunction<String, String, SimpleMailMessage> confirmationMail) throws IOException {
+        final UserImportResult result = new UserImportResult();
+        final long start = System.nanoTime();
+        final BufferedReader reader = new BufferedReader(input);
+        final List<Row> chunk = new ArrayList<>(chunkSize);
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty() || (lineNumber == 1 && line.trim().toLowerCase(Locale.ROOT).startsWith("email,"))) {
+                continue;
+            }
+            final Row row = Row.parse(lineNumber, line);
+            if (row.failure != null) {
+                result.failed(row.line, row.email, row.failure);
+                continue;
+            }
+            chunk.add(row);
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, confirm, confirmationMail, result);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, confirm, confirmationMail, result);
+        }
+        result.finished(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        LOG.info("Imported {} users ({} failed) in {} ms", result.getImported(), result.getFailed(), result.getMillis());
+        return result;
+    }
+
+    private void importChunk(final List<Row> chunk, final boolean confirm,
+                             final BiFunction<String, String, SimpleMailMessage> confirmationMail, final UserImportResult result) {
+        // duplicates within the chunk and against rows already committed, including earlier chunks
+        final Set<String> seen = new HashSet<>();
+        final Set<String> existing = new HashSet<>(userRepository.findExistingEmails(
+                chunk.stream().map(row -> row.email).collect(Collectors.toList())));
+        final List<Row> rows = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            if (!seen.add(row.email) || existing.contains(row.email)) {
+                result.failed(row.line, row.email, "email already exists");
+            } else {
+                rows.add(row);
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        hashingPool.invoke(new HashTask(rows, 0, rows.size()));
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(rows, confirm, confirmationMail));
+            result.imported(rows.size());
+        } catch (DataIntegrityViolationException e) {
+            // someone registered one of these emails meanwhile: find out which, one row at a time
+            for (Row row : rows) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insert(Collections.singletonList(row), confirm, confirmationMail));
+                    result.imported(1);
+                } catch (DataIntegrityViolationException rowFailure) {
+                    result.failed(row.line, row.email, "email already exists");
+                }
+            }
+        }
+    }
+
+    private void insert(final List<Row> rows, final boolean confirm, final BiFunction<String, String, SimpleMailMessage> confirmationMail) {
+        final Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.batchUpdate(insertUserSql, rows, rows.size(), (ps, row) -> {
+            ps.setString(1, row.email);
+            ps.setString(2, row.hash);
+            ps.setTimestamp(3, now);
+            ps.setBoolean(4, !confirm);
+            ps.setInt(5, 0);
+        });
+        if (!confirm) {
+            return;
+        }
+
+        final Map<String, Long> ids = new HashMap<>();
+        for (UserSummary user : userRepository.findSummariesByEmailIn(rows.stream().map(row -> row.email).collect(Collectors.toList()))) {
+            ids.put(user.getEmail(), user.getId());
+        }
+        // same lifetime as a token issued at registration
+        final Timestamp expiry = new Timestamp(new VerificationToken(null, null).getExpiryDate().getTime());
+        final List<SimpleMailMessage> mails = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            row.token = Tokens.newToken();
+            mails.add(confirmationMail.apply(row.email, Tokens.encode(row.token)));
+        }
+        jdbcTemplate.batchUpdate(insertTokenSql, rows, rows.size(), (ps, row) -> {
+            ps.setBytes(1, row.token);
+            ps.setLong(2, ids.get(row.email));
+            ps.setTimestamp(3, expiry);
+        });
+        mailOutbox.enqueueAll(mails);
+    }
+
+    // table and column names as Hibernate maps them, quoting and naming strategy included, so these inserts follow the entities
+    private static String insertSql(final SessionFactoryImplementor sessionFactory, final Class<?> entity, final String... properties) {
+        final AbstractEntityPersister persister = (AbstractEntityPersister) sessionFactory.getMetamodel().entityPersister(entity);
+        final List<String> columns = new ArrayList<>(properties.length);
+        for (String property : properties) {
+            columns.add(persister.getPropertyColumnNames(property)[0]);
+        }
+        return "insert into " + persister.getTableName() + " (" + String.join(", ", columns) + ") values ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+    }
+
+    private final class HashTask extends RecursiveAction {
+
+        private final List<Row> rows;
+        private final int from;
+        private final int to;
+
+        HashTask(final List<Row> rows, final int from, final int to) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= HASH_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    final Row row = rows.get(i);
+                    row.hash = hashingPasswordEncoder.encode(row.password);
+                    row.password = null;
+                }
+                return;
+            }
+            final int middle = (from + to) >>> 1;
+            invokeAll(new HashTask(rows, from, middle), new HashTask(rows, middle, to));
+        }
+    }
+
+    private static final class Row {
+
+        private final long line;
+        private final String email;
+        private String password;
+        private String hash;
+        private byte[] token;
+        private String failure;
+
+        private Row(final long line, final String email, final String password) {
+            this.line = line;
+            this.email = email;
+            this.password = password;
+        }
+
+        static Row parse(final long line, final String text) {
+            final int comma = text.indexOf(',');
+            if (comma < 0) {
+                return failed(line, null, "expected email,password");
+            }
+            final String email = User.normalizeEmail(text.substring(0, comma));
+            final String password = text.substring(comma + 1);
+            if (email.isEmpty() || email.length() > MAX_EMAIL_LENGTH || email.indexOf('@') <= 0 || email.endsWith("@")) {
+                return failed(line, email, "invalid email");
+            }
+            if (password.isEmpty()) {
+                return failed(line, email, "empty password");
+            }
+            return new Row(line, email, password);
+        }
+
+        private static Row failed(final long line, final String email, final String failure) {
+            final Row row = new Row(line, email, null);
+            row.failure = failure;
+            return row;
+        }
+    }
+}
@@ -2,17 +2,28 @@ package com.baeldung.lss.service;
 
 import javax.transaction.Transactional;
 
+import com.baeldung.lss.config.ReplicaRouting;
 import com.baeldung.lss.persistence.VerificationTokenRepository;
+import com.baeldung.lss.security.LssCachingUserDetailsService;
+import com.baeldung.lss.security.VerifiedCredentialCache;
 import com.baeldung.lss.web.model.PasswordResetToken;
 import com.baeldung.lss.web.model.VerificationToken;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.mail.SimpleMailMessage;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.baeldung.lss.persistence.UserRepository;
 import com.baeldung.lss.validation.EmailExistsException;
 import com.baeldung.lss.web.model.User;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
 @Service
 @Transactional
 class UserService implements IUserService {
@@ -27,24 +38,69 @@ class UserService implements IUserService {
     @Autowired
     private VerificationTokenRepository verificationTokenRepository;
 
+    private final LssCachingUserDetailsService userDetailsCache;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
     @Autowired
-    UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    private VerifiedCredentialCache verifiedCredentialCache;
+
+    @Autowired
+    private MailOutbox mailOutbox;
+
+    @Autowired
+    UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, LssCachingUserDetailsService userDetailsCache,
+                PlatformTransactionManager transactionManager) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.userDetailsCache = userDetailsCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
     }
 
+    // hashing takes ~100ms of CPU, so it runs before any connection is taken and the insert transaction stays short
     @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
     public User registerNewUser(final User user) throws EmailExistsException {
-        if (emailExist(user.getEmail())) {
-            throw new EmailExistsException("There is an account with that email address: " + user.getEmail());
-        }
         user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+        return insertNewUser(user, () -> {
+        });
     }
 
-    private boolean emailExist(String email) {
-        final User user = userRepository.findByEmail(email);
-        return user != null;
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public User registerNewUser(final User user, final byte[] verificationToken, final SimpleMailMessage confirmation) throws EmailExistsException {
+        user.setPassword(passwordEncoder.encode(user.getPassword()));
+        return insertNewUser(user, () -> {
+            verificationTokenRepository.save(new VerificationToken(verificationToken, user));
+            mailOutbox.enqueue(confirmation);
+        });
+    }
+
+    // insert first and let the unique email index decide, instead of a check-then-insert that races
+    private User insertNewUser(final User user, final Runnable alsoPersist) throws EmailExistsException {
+        try {
+            return transactionTemplate.execute(status -> {
+                final User saved = userRepository.saveAndFlush(user);
+                alsoPersist.run();
+                return saved;
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (emailTaken(user.getEmail())) {
+                throw new EmailExistsException("There is an account with that email address: " + user.getEmail());
+            }
+            throw e;
+        }
+    }
+
+    // drivers report the user_email_ux violation in different shapes, so ask the primary rather than parse it
+    private boolean emailTaken(final String email) {
+        final List<String> existing = ReplicaRouting.onPrimary(() -> readOnlyTransactionTemplate.execute(
+                status -> userRepository.findExistingEmails(Collections.singletonList(email))));
+        return existing != null && !existing.isEmpty();
     }
 
     @Override
@@ -55,43 +111,84 @@ class UserService implements IUserService {
         if (emailOwner != null && !id.equals(emailOwner.getId())) {
             throw new EmailExistsException("Email not available.");
         }
+        final User existing = userRepository.findById(id).orElse(null);
+        if (existing != null) {
+            // the email itself may be changing, so evict the cached entry under the old address too
+            evictCachedCredentials(existing.getEmail());
+            user.setCredentialEpoch(existing.getCredentialEpoch());
+        }
         if (user.getPassword() != null) {
             user.setPassword(passwordEncoder.encode(user.getPassword()));
+            user.setCredentialEpoch(user.getCredentialEpoch() + 1);
         }
+        evictCachedCredentials(email);
         return userRepository.save(user);
     }
 
     @Override
     public void saveRegisteredUser(final User user) {
         userRepository.save(user);
+        evictCachedCredentials(user.getEmail());
     }
 
     @Override
-    public VerificationToken getVerificationToken(final String token) {
-        return verificationTokenRepository.findByToken(token);
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public VerificationToken getVerificationToken(final byte[] token) {
+        // a null key would be derived into "is null" and match unmigrated rows
+        return token == null ? null : readWithPrimaryFallback(() -> verificationTokenRepository.findByToken(token));
     }
 
     @Override
-    public void createPasswordResetTokenForUser(User user, String token) {
+    public void createPasswordResetTokenForUser(User user, byte[] token, SimpleMailMessage resetMail) {
         final PasswordResetToken myToken = new PasswordResetToken(token, user);
         passwordTokenRepository.save(myToken);
+        mailOutbox.enqueue(resetMail);
     }
 
     @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
     public User findUserByEmail(final String email) {
-        return userRepository.findByEmail(email);
+        return readWithPrimaryFallback(() -> userRepository.findByEmail(User.normalizeEmail(email)));
     }
 
     @Override
-    public PasswordResetToken getPasswordResetToken(String token) {
-        return passwordTokenRepository.findByToken(token);
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public PasswordResetToken getPasswordResetToken(byte[] token) {
+        return token == null ? null : readWithPrimaryFallback(() -> passwordTokenRepository.findByToken(token));
     }
 
     @Override
     public void changeUserPassword(final User user, final String password) {
         user.setPassword(passwordEncoder.encode(password));
+        user.setCredentialEpoch(user.getCredentialEpoch() + 1);
         userRepository.save(user);
+        evictCachedCredentials(user.getEmail());
+    }
+
+    // tokens first: they reference the user; deleting through the session also drops its cache entries
+    @Override
+    public void deleteUser(final Long id) {
+        userRepository.findById(id).ifPresent(user -> {
+            final List<Long> ids = Collections.singletonList(id);
+            passwordTokenRepository.deleteByUserIdIn(ids);
+            verificationTokenRepository.deleteByUserIdIn(ids);
+            userRepository.delete(user);
+            evictCachedCredentials(user.getEmail());
+        });
+    }
+
+    // links are usually followed seconds after the row was written, possibly before it reached the replica
+    private <T> T readWithPrimaryFallback(final Supplier<T> lookup) {
+        final T found = readOnlyTransactionTemplate.execute(status -> lookup.get());
+        if (found != null) {
+            return found;
+        }
+        return ReplicaRouting.onPrimary(() -> readOnlyTransactionTemplate.execute(status -> lookup.get()));
     }
 
+    private void evictCachedCredentials(final String email) {
+        userDetailsCache.evict(email);
+        verifiedCredentialCache.evict(email);
+    }
 
 }
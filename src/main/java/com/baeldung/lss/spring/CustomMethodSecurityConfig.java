@@ -1,6 +1,8 @@
 package com.baeldung.lss.spring;
 
+import com.baeldung.lss.security.CompiledMethodSecurityExpressionHandler;
 import com.baeldung.lss.security.CustomMethodSecurityExpressionHandler;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.access.expression.method.MethodSecurityExpressionHandler;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
@@ -10,8 +12,14 @@ import org.springframework.security.config.annotation.method.configuration.Globa
 @EnableGlobalMethodSecurity(prePostEnabled = true)
 public class CustomMethodSecurityConfig extends GlobalMethodSecurityConfiguration {
 
+    @Value("${lss.method-security.mode:default}")
+    private String mode;
+
     @Override
     protected MethodSecurityExpressionHandler createExpressionHandler() {
+        if ("compiled".equalsIgnoreCase(mode)) {
+            return new CompiledMethodSecurityExpressionHandler(getClass().getClassLoader());
+        }
         return new CustomMethodSecurityExpressionHandler();
     }
 
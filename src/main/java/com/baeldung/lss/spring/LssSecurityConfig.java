@@ -1,58 +1,137 @@
 package com.baeldung.lss.spring;
 
+import com.baeldung.lss.security.BoundedPasswordEncoder;
+import com.baeldung.lss.security.CachingPersistentTokenRepository;
+import com.baeldung.lss.security.IndexedRequestAuthorizationManager;
+import com.baeldung.lss.security.LoginThrottlingFilter;
+import com.baeldung.lss.security.MeteredPersistentTokenRepository;
+import com.baeldung.lss.security.PasswordEncoders;
+import com.baeldung.lss.security.PasswordHashingRejectionFilter;
+import com.baeldung.lss.security.SignedRememberMeServices;
+import com.baeldung.lss.security.UrlAuthorizationRule;
+import com.baeldung.lss.security.VerifiedCredentialCache;
+import com.baeldung.lss.security.VerifiedCredentialCacheAuthenticationProvider;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
-import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityCustomizer;
+import org.springframework.security.config.annotation.web.configurers.ExpressionUrlAuthorizationConfigurer;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.channel.ChannelProcessingFilter;
+import org.springframework.security.web.authentication.RememberMeServices;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.authentication.rememberme.AbstractRememberMeServices;
 import org.springframework.security.web.authentication.rememberme.JdbcTokenRepositoryImpl;
+import org.springframework.security.web.authentication.rememberme.PersistentTokenBasedRememberMeServices;
 import org.springframework.security.web.authentication.rememberme.PersistentTokenRepository;
 
-import javax.annotation.PostConstruct;
 import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static com.baeldung.lss.security.UrlAuthorizationRule.antMatchers;
+import static com.baeldung.lss.security.UrlAuthorizationRule.anyRequest;
 
 @EnableWebSecurity
-@EnableAsync
 //This is to allow @PreAuthorize and @secured annotations
 //@EnableGlobalMethodSecurity(prePostEnabled = true, securedEnabled = true)
 public class LssSecurityConfig {
+    private static final String LOGIN_PAGE = "/login";
+    private static final String LOGIN_PROCESSING_URL = "/doLogin";
+    private static final String LOGOUT_URL = "/logout";
+    private static final int REMEMBER_ME_VALIDITY_SECONDS = 604800;
+
     private final UserDetailsService userDetailsService;
     private final PasswordEncoder passwordEncoder;
     private final DataSource dataSource;
+    private final VerifiedCredentialCache verifiedCredentialCache;
+    private final MeterRegistry meterRegistry;
+
+    // only has to match between the remember-me services and their authentication provider
+    private final String rememberMeKey = UUID.randomUUID().toString();
+
+    // jdbc: every auto-login reads and rotates the row; caching: lookups served from memory, rotations still written
+    // through; signed: stateless HMAC-signed cookie, no remember-me table at all
+    @Value("${lss.remember-me.store:jdbc}")
+    private String rememberMeStore;
+    @Value("${lss.remember-me.caching.maximum-size:100000}")
+    private long rememberMeCacheSize;
+    @Value("${lss.remember-me.signed.signing-key:}")
+    private String rememberMeSigningKey;
+    @Value("${lss.remember-me.signed.previous-signing-key:}")
+    private String rememberMePreviousSigningKey;
+    @Value("${lss.remember-me.signed.previous-key-valid-until:}")
+    private String rememberMePreviousKeyValidUntil;
+
+    // URL authorization, first match wins. Both modes are built from this table: chain tries authorizeRequests()
+    // matchers in sequence, indexed looks the same rules up through a path trie
+    static final List<UrlAuthorizationRule> URL_RULES = Arrays.asList(
+            antMatchers("/user/delete/**").hasAuthority("ADMIN"),
+            antMatchers("/user/modify/**").hasAnyAuthority("USER", "ADMIN"),
+            antMatchers("/user/*form").hasAnyAuthority("ADMIN"),
+            antMatchers("/secured").hasAnyAuthority("ADMIN"),
+            //.antMatchers("/secured").access("request.method == 'GET'")
+            // allow post request with username = user
+            //.antMatchers("/secured").access("request.method != 'POST' and principal.username == 'user'")
+            //not allow IP address
+            //.antMatchers("/secured").not().access("hasIpAddress('129.10.5.2/24') and hasIpAddress('129.10.5.1/24')")
+            //allow IP address local host also this will override previos one
+            //.antMatchers("/secured").access("hasIpAddress('::1')")
+            //use not to block below IP address
+            //.antMatchers("/secured").not().access("hasIpAddress('129.10.5.1/24')")
+            antMatchers("/signup", "/user/register", "/registrationConfirm*", "/forgotPassword*",
+                    "/user/resetPassword*",
+                    "/user/changePassword*",
+                    "/user/savePassword*").permitAll(),
+            anyRequest().authenticated());
+
+    @Value("${lss.url-authorization.mode:chain}")
+    private String urlAuthorizationMode;
+
+    @Value("${lss.login-throttle.enabled:false}")
+    private boolean loginThrottleEnabled;
 
     // I add @Lazy PasswordEncoder to remove the cycle of dependencies
     @Autowired
-    public LssSecurityConfig(UserDetailsService userDetailsService, @Lazy PasswordEncoder passwordEncoder, DataSource dataSource) {
+    public LssSecurityConfig(UserDetailsService userDetailsService, @Lazy PasswordEncoder passwordEncoder, DataSource dataSource,
+                             VerifiedCredentialCache verifiedCredentialCache, MeterRegistry meterRegistry) {
         super();
         this.userDetailsService = userDetailsService;
         this.passwordEncoder = passwordEncoder;
         this.dataSource = dataSource;
+        this.verifiedCredentialCache = verifiedCredentialCache;
+        this.meterRegistry = meterRegistry;
     }
-    //second way to solve problem of thread auth issue delegating security context
-    @PostConstruct
-    public void enableAuthCtxOnSpawnedThreads() {
-        SecurityContextHolder.setStrategyName(SecurityContextHolder.MODE_INHERITABLETHREADLOCAL);
-    }
-    //     first way to solve problem of thread auth issue  delegating security context
-//    @Bean
-//    public MethodInvokingFactoryBean methodInvokingFactoryBean() {
-//        MethodInvokingFactoryBean methodInvokingFactoryBean = new MethodInvokingFactoryBean();
-//        methodInvokingFactoryBean.setTargetClass(SecurityContextHolder.class);
-//        methodInvokingFactoryBean.setTargetMethod("setStrategyName");
-//        methodInvokingFactoryBean.setArguments(new String[]{SecurityContextHolder.MODE_INHERITABLETHREADLOCAL});
-//        return methodInvokingFactoryBean;
-//    }
     @Autowired
     public void configureGlobal(AuthenticationManagerBuilder auth) throws Exception { // @formatter:off 
-        auth.userDetailsService(userDetailsService).passwordEncoder(passwordEncoder);
+        if (verifiedCredentialCache.isEnabled()) {
+            final VerifiedCredentialCacheAuthenticationProvider provider = new VerifiedCredentialCacheAuthenticationProvider(verifiedCredentialCache);
+            provider.setUserDetailsService(userDetailsService);
+            provider.setPasswordEncoder(passwordEncoder);
+            if (userDetailsService instanceof UserDetailsPasswordService) {
+                provider.setUserDetailsPasswordService((UserDetailsPasswordService) userDetailsService);
+            }
+            auth.authenticationProvider(provider);
+        } else {
+            auth.userDetailsService(userDetailsService).passwordEncoder(passwordEncoder);
+        }
         /*old implementation*/
         /*auth.
             inMemoryAuthentication().passwordEncoder(passwordEncoder)
@@ -64,36 +143,19 @@ public class LssSecurityConfig {
     } // @formatter:on
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {// @formatter:off
-        http
-                .authorizeRequests()
-                .antMatchers("/user/delete/**").hasAuthority("ADMIN")
-                .antMatchers("/user/modify/**").hasAnyAuthority("USER", "ADMIN")
-                .antMatchers("/user/*form").access("hasAnyAuthority('ADMIN')")
-                // another way to use hasAnyAuthority but with access Expressions
-                .antMatchers("/secured").access("hasAnyAuthority('ADMIN')")
-                //.antMatchers("/secured").access("request.method == 'GET'")
-                // allow post request with username = user
-                //.antMatchers("/secured").access("request.method != 'POST' and principal.username == 'user'")
-                //not allow IP address
-                //.antMatchers("/secured").not().access("hasIpAddress('129.10.5.2/24') and hasIpAddress('129.10.5.1/24')")
-                //allow IP address local host also this will override previos one
-                //.antMatchers("/secured").access("hasIpAddress('::1')")
-                //use not to block below IP address
-                //.antMatchers("/secured").not().access("hasIpAddress('129.10.5.1/24')")
-                .antMatchers("/signup", "/user/register", "/registrationConfirm*", "/forgotPassword*",
-                        "/user/resetPassword*",
-                        "/user/changePassword*",
-                        "/user/savePassword*")
-
-                .permitAll()
-                .anyRequest()
-                .authenticated()
+    public SecurityFilterChain filterChain(HttpSecurity http, LoginThrottlingFilter loginThrottlingFilter) throws Exception {// @formatter:off
+        final boolean indexedUrlAuthorization = "indexed".equals(urlAuthorizationMode);
+        if (indexedUrlAuthorization) {
+            http.authorizeHttpRequests().anyRequest().access(urlAuthorization());
+        } else {
+            final ExpressionUrlAuthorizationConfigurer<HttpSecurity>.ExpressionInterceptUrlRegistry registry = http.authorizeRequests();
+            URL_RULES.forEach(rule -> rule.applyTo(registry));
+        }
 
-                .and()
+        http
                 .formLogin()
-                .loginPage("/login").permitAll()
-                .loginProcessingUrl("/doLogin")
+                .loginPage(LOGIN_PAGE).permitAll(!indexedUrlAuthorization)
+                .loginProcessingUrl(LOGIN_PROCESSING_URL)
 // deprecated
                 /* .and()
                  .rememberMe()
@@ -104,34 +166,125 @@ public class LssSecurityConfig {
                          .rememberMeParameter("remember")*/
                 .and()
                 .rememberMe()
-                .tokenRepository(persistentTokenRepository())
-                .tokenValiditySeconds(604800)
-                .rememberMeCookieName("sticky")
-                .rememberMeParameter("remember")
+                .rememberMeServices(rememberMeServices())
+                .key(rememberMeKey)
 
                 .and()
                 .logout()
-                .permitAll()
-                .logoutUrl("/logout")
+                .permitAll(!indexedUrlAuthorization)
+                .logoutUrl(LOGOUT_URL)
 
                 .and()
-                    .csrf().disable();
+                    .csrf().disable()
 
+                .addFilterBefore(new PasswordHashingRejectionFilter(), ChannelProcessingFilter.class);
+
+        if (loginThrottleEnabled) {
+            http.addFilterBefore(loginThrottlingFilter, UsernamePasswordAuthenticationFilter.class);
+        }
         return http.build();
     }
 
+    // public static assets skip the security filter chain: no session, remember-me or authorization work for them
+    @Bean
+    public WebSecurityCustomizer staticResourcesCustomizer() {
+        return web -> web.ignoring().antMatchers("/js/**", "/favicon.ico");
+    }
+
+    // the scrape and health endpoints live on the internal management port; the matcher only matches requests there
+    @Bean
+    public WebSecurityCustomizer managementEndpointsCustomizer() {
+        return web -> web.ignoring().requestMatchers(EndpointRequest.to("health", "prometheus"));
+    }
+
+    // the shared rules, behind the login and logout pages that formLogin().permitAll() and logout().permitAll() put in
+    // front of the chain: exact URLs, and the logout URL for the methods it accepts with CSRF protection off
+    static IndexedRequestAuthorizationManager urlAuthorization() {
+        final IndexedRequestAuthorizationManager.Builder builder = IndexedRequestAuthorizationManager.builder()
+                .exactUrls(LOGIN_PAGE, LOGIN_PROCESSING_URL, LOGIN_PAGE + "?error", LOGIN_PAGE + "?logout").permitAll();
+        for (HttpMethod method : new HttpMethod[] {HttpMethod.GET, HttpMethod.POST, HttpMethod.PUT, HttpMethod.DELETE}) {
+            builder.antMatchers(method, LOGOUT_URL).permitAll();
+        }
+        URL_RULES.forEach(rule -> rule.applyTo(builder));
+        return builder.build();
+    }
+
+    @Bean
+    public LoginThrottlingFilter loginThrottlingFilter(@Value("${lss.login-throttle.account.capacity:5}") int accountCapacity,
+                                                       @Value("${lss.login-throttle.account.refill-per-minute:5}") int accountRefillPerMinute,
+                                                       @Value("${lss.login-throttle.account.free-failures:3}") int accountFreeFailures,
+                                                       @Value("${lss.login-throttle.address.capacity:30}") int addressCapacity,
+                                                       @Value("${lss.login-throttle.address.refill-per-minute:60}") int addressRefillPerMinute,
+                                                       @Value("${lss.login-throttle.address.free-failures:10}") int addressFreeFailures,
+                                                       @Value("${lss.login-throttle.backoff-base:1s}") Duration backoffBase,
+                                                       @Value("${lss.login-throttle.backoff-max:5m}") Duration backoffMax,
+                                                       @Value("${lss.login-throttle.maximum-entries:100000}") long maximumEntries,
+                                                       @Value("${lss.login-throttle.idle-timeout:30m}") Duration idleTimeout) {
+        return new LoginThrottlingFilter(LOGIN_PROCESSING_URL,
+                new LoginThrottlingFilter.Limit(accountCapacity, accountRefillPerMinute, accountFreeFailures),
+                new LoginThrottlingFilter.Limit(addressCapacity, addressRefillPerMinute, addressFreeFailures),
+                new LoginThrottlingFilter.Backoff(backoffBase, backoffMax),
+                maximumEntries, idleTimeout);
+    }
+
+    // only runs inside the security filter chain, never as a plain servlet filter
+    @Bean
+    public FilterRegistrationBean<LoginThrottlingFilter> loginThrottlingFilterRegistration(LoginThrottlingFilter loginThrottlingFilter) {
+        final FilterRegistrationBean<LoginThrottlingFilter> registration = new FilterRegistrationBean<>(loginThrottlingFilter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
+
+    private RememberMeServices rememberMeServices() {
+        final AbstractRememberMeServices rememberMeServices;
+        if ("signed".equals(rememberMeStore)) {
+            rememberMeServices = new SignedRememberMeServices(rememberMeKey, userDetailsService, rememberMeSigningKey,
+                    rememberMePreviousSigningKey,
+                    rememberMePreviousKeyValidUntil.isEmpty() ? null : Instant.parse(rememberMePreviousKeyValidUntil));
+        } else {
+            rememberMeServices = new PersistentTokenBasedRememberMeServices(rememberMeKey, userDetailsService,
+                    new MeteredPersistentTokenRepository(persistentTokenRepository(), rememberMeStore, meterRegistry));
+        }
+        rememberMeServices.setTokenValiditySeconds(REMEMBER_ME_VALIDITY_SECONDS);
+        rememberMeServices.setCookieName("sticky");
+        rememberMeServices.setParameter("remember");
+        return rememberMeServices;
+    }
 
     //This is only to manage the cookies also we should create the table manually
     @Bean
     public PersistentTokenRepository persistentTokenRepository() {
         final JdbcTokenRepositoryImpl jdbcTokenRepository = new JdbcTokenRepositoryImpl();
         jdbcTokenRepository.setDataSource(dataSource);
+        if ("caching".equals(rememberMeStore)) {
+            return new CachingPersistentTokenRepository(jdbcTokenRepository, rememberMeCacheSize);
+        }
         return jdbcTokenRepository;
     }
 
+    // with a positive target latency the BCrypt work factor is measured on this host at startup
+    // the plain encoder, for callers that bring their own threads such as the bulk import
+    @Bean
+    public PasswordEncoder hashingPasswordEncoder(@Value("${lss.password.bcrypt.strength:10}") int strength,
+                                                  @Value("${lss.password.bcrypt.target-millis:0}") long targetMillis) {
+        if (targetMillis > 0) {
+            strength = PasswordEncoders.calibrateBCryptStrength(targetMillis, strength);
+        }
+        return PasswordEncoders.delegating(strength);
+    }
+
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @Primary
+    public PasswordEncoder passwordEncoder(@Qualifier("hashingPasswordEncoder") PasswordEncoder hashingPasswordEncoder,
+                                           @Value("${lss.password.hashing.threads:0}") int threads,
+                                           @Value("${lss.password.hashing.queue-capacity:64}") int queueCapacity,
+                                           @Value("${lss.password.hashing.retry-after-seconds:1}") long retryAfterSeconds,
+                                           MeterRegistry meterRegistry) {
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        return new BoundedPasswordEncoder(hashingPasswordEncoder, threads, queueCapacity, retryAfterSeconds, meterRegistry);
     }
 //    @Bean
 //    public PasswordEncoder encoder() {
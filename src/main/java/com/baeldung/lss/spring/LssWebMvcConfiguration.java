@@ -1,9 +1,18 @@
 package com.baeldung.lss.spring;
 
+import com.baeldung.lss.web.VersionedResourceCacheFilter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.Ordered;
+import org.springframework.http.CacheControl;
 import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.ResourceUrlProvider;
+
+import java.time.Duration;
 
 @Configuration
 public class LssWebMvcConfiguration implements WebMvcConfigurer {
@@ -23,4 +32,15 @@ public class LssWebMvcConfiguration implements WebMvcConfigurer {
         registry.setOrder(Ordered.HIGHEST_PRECEDENCE);
     }
 
-}
\ No newline at end of file
+    // only content-hashed URLs are cached long; everything else revalidates against Last-Modified
+    @Bean
+    public FilterRegistrationBean<VersionedResourceCacheFilter> versionedResourceCacheFilter(
+            @Qualifier("mvcResourceUrlProvider") ResourceUrlProvider resourceUrlProvider,
+            @Value("${lss.static-resources.versioned-max-age:365d}") Duration maxAge) {
+        final FilterRegistrationBean<VersionedResourceCacheFilter> registration = new FilterRegistrationBean<>(
+                new VersionedResourceCacheFilter(resourceUrlProvider, CacheControl.maxAge(maxAge).cachePublic()));
+        registration.addUrlPatterns("/js/*");
+        return registration;
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.baeldung.lss.web;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.resource.ResourceUrlProvider;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lets clients cache content-versioned static assets for the given max-age without revalidating. A URL only counts as
+ * versioned when it is the one the resource chain currently hands out for the asset; plain names and stale or
+ * made-up hashes keep the default Last-Modified revalidation.
+ */
+public class VersionedResourceCacheFilter extends OncePerRequestFilter {
+
+    // what ContentVersionStrategy inserts before the extension: an MD5 hex digest
+    private static final Pattern CONTENT_HASH = Pattern.compile("-[0-9a-f]{32}(?=\\.[^/.]+$)");
+
+    private final ResourceUrlProvider resourceUrlProvider;
+    private final String cacheControl;
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    public VersionedResourceCacheFilter(final ResourceUrlProvider resourceUrlProvider, final CacheControl cacheControl) {
+        this.resourceUrlProvider = resourceUrlProvider;
+        this.cacheControl = cacheControl.getHeaderValue();
+    }
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response, final FilterChain chain)
+            throws ServletException, IOException {
+        final String path = urlPathHelper.getLookupPathForRequest(request);
+        final Matcher hash = CONTENT_HASH.matcher(path);
+        if (hash.find()) {
+            final String plainPath = path.substring(0, hash.start()) + path.substring(hash.end());
+            if (path.equals(resourceUrlProvider.getForLookupPath(plainPath))) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+            }
+        }
+        chain.doFilter(request, response);
+    }
+}
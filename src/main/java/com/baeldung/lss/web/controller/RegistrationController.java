@@ -1,15 +1,16 @@
 package com.baeldung.lss.web.controller;
 
-import com.baeldung.lss.persistence.VerificationTokenRepository;
+import com.baeldung.lss.security.Tokens;
+import com.baeldung.lss.service.AccountMailService;
 import com.baeldung.lss.service.IUserService;
 import com.baeldung.lss.validation.EmailExistsException;
 import com.baeldung.lss.web.model.PasswordResetToken;
 import com.baeldung.lss.web.model.User;
 import com.baeldung.lss.web.model.VerificationToken;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.env.Environment;
 import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -23,23 +24,30 @@ import com.google.common.collect.ImmutableMap;
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import java.util.Calendar;
-import java.util.Objects;
-import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Controller
 public class RegistrationController {
 
     private final IUserService userService;
-    private final VerificationTokenRepository verificationTokenRepository;
-    @Autowired
-    private Environment env;
-    @Autowired
-    private JavaMailSender mailSender;
+    private final AccountMailService accountMailService;
+    private final Timer verificationValid;
+    private final Timer verificationInvalid;
+    private final Timer verificationExpired;
+    private final Timer resetValid;
+    private final Timer resetInvalid;
+    private final Timer resetExpired;
 
     @Autowired
-    public RegistrationController(IUserService userService, VerificationTokenRepository verificationTokenRepository) {
+    public RegistrationController(IUserService userService, AccountMailService accountMailService, MeterRegistry meterRegistry) {
         this.userService = userService;
-        this.verificationTokenRepository = verificationTokenRepository;
+        this.accountMailService = accountMailService;
+        this.verificationValid = tokenValidationTimer(meterRegistry, "verification", "valid");
+        this.verificationInvalid = tokenValidationTimer(meterRegistry, "verification", "invalid");
+        this.verificationExpired = tokenValidationTimer(meterRegistry, "verification", "expired");
+        this.resetValid = tokenValidationTimer(meterRegistry, "reset", "valid");
+        this.resetInvalid = tokenValidationTimer(meterRegistry, "reset", "invalid");
+        this.resetExpired = tokenValidationTimer(meterRegistry, "reset", "expired");
     }
 
     @RequestMapping(value = "signup")
@@ -58,13 +66,9 @@ public class RegistrationController {
         }
         try {
             user.setEnabled(false);
-            userService.registerNewUser(user);
-            final String token = UUID.randomUUID().toString();
-            final VerificationToken myToken = new VerificationToken(token, user);
-            verificationTokenRepository.save(myToken);
-
-            final SimpleMailMessage email = sendEmail(request, token, user, "Registration Confirmation","/registrationConfirm?token=");
-            mailSender.send(email);
+            final byte[] token = Tokens.newToken();
+            final SimpleMailMessage email = accountMailService.registrationConfirmation(AccountMailService.appUrl(request), user.getEmail(), Tokens.encode(token));
+            userService.registerNewUser(user, token, email);
 
         } catch (EmailExistsException e) {
             result.addError(new FieldError("user", "email", e.getMessage()));
@@ -78,9 +82,11 @@ public class RegistrationController {
             final Model model,
             @RequestParam("token") final String token,
             final RedirectAttributes redirectAttributes) {
-        final VerificationToken verificationToken = userService.getVerificationToken(token);
+        final long start = System.nanoTime();
+        final VerificationToken verificationToken = userService.getVerificationToken(Tokens.decode(token));
 
         if (verificationToken == null) {
+            recordTokenValidation(verificationInvalid, start);
             redirectAttributes.addFlashAttribute("errorMessage", "Invalid account confirmation token.");
             return new ModelAndView("redirect:/login");
         }
@@ -89,9 +95,11 @@ public class RegistrationController {
         //==================== This is added by me ===============================//TODO
         final Calendar cal = Calendar.getInstance();
         if ((verificationToken.getExpiryDate().getTime() - cal.getTime().getTime()) <= 0) {
+            recordTokenValidation(verificationExpired, start);
             redirectAttributes.addFlashAttribute("errorMessage", "Your registration token has expired. Please register again.");
             return new ModelAndView("redirect:/login");
         }
+        recordTokenValidation(verificationValid, start);
         user.setEnabled(true);
         userService.saveRegisteredUser(user);
         redirectAttributes.addFlashAttribute("message", "Your account verified successfully");
@@ -103,13 +111,10 @@ public class RegistrationController {
                                       final RedirectAttributes redirectAttributes,
                                       @RequestParam("email") final String userEmail){
         final User user = userService.findUserByEmail(userEmail);
-        System.out.println("I am here");
-        System.out.println("This is an email "+userEmail);
         if (user != null){
-            final String token = UUID.randomUUID().toString();
-            userService.createPasswordResetTokenForUser(user, token);
-            final SimpleMailMessage email = sendEmail(request, token, user, "Reset Password","/user/changePassword?id=" +user.getId()+ "&token=");
-            mailSender.send(email);
+            final byte[] token = Tokens.newToken();
+            final SimpleMailMessage email = accountMailService.passwordReset(AccountMailService.appUrl(request), user.getEmail(), user.getId(), Tokens.encode(token));
+            userService.createPasswordResetTokenForUser(user, token, email);
         }
         redirectAttributes.addFlashAttribute("message", "You should receive an Password Reset Email shortly");
         return new ModelAndView("redirect:/login");
@@ -122,15 +127,18 @@ public class RegistrationController {
             @RequestParam("id") final long id,
             @RequestParam("token") final String token){
 
-        final PasswordResetToken passToken = userService.getPasswordResetToken(token);
+        final long start = System.nanoTime();
+        final PasswordResetToken passToken = userService.getPasswordResetToken(Tokens.decode(token));
 
 
         if (passToken == null) {
+            recordTokenValidation(resetInvalid, start);
             redirectAttributes.addFlashAttribute("errorMessage", "Invalid password reset token");
             return new ModelAndView("redirect:/login");
         }
         final User user = passToken.getUser();
         if (user.getId() != id) {
+            recordTokenValidation(resetInvalid, start);
             redirectAttributes.addFlashAttribute("errorMessage", "Invalid password reset token");
             return new ModelAndView("redirect:/login");
         }
@@ -140,10 +148,12 @@ public class RegistrationController {
                 .getTime()
                 - cal.getTime()
                 .getTime()) <= 0) {
+            recordTokenValidation(resetExpired, start);
             redirectAttributes.addFlashAttribute("errorMessage", "Your password reset token has expired");
             return new ModelAndView("redirect:/login");
         }
 
+        recordTokenValidation(resetValid, start);
         final ModelAndView view = new ModelAndView("resetPassword");
         view.addObject("token", token);
         return view;
@@ -158,7 +168,7 @@ public class RegistrationController {
         if (!password.equals(passwordConfirmation)) {
             return new ModelAndView("resetPassword", ImmutableMap.of("errorMessage", "Passwords do not match"));
         }
-        final PasswordResetToken p = userService.getPasswordResetToken(token);
+        final PasswordResetToken p = userService.getPasswordResetToken(Tokens.decode(token));
         if (p == null) {
             redirectAttributes.addFlashAttribute("message", "Invalid token");
         } else {
@@ -172,19 +182,13 @@ public class RegistrationController {
         }
         return new ModelAndView("redirect:/login");
     }
-    public final SimpleMailMessage sendEmail(final HttpServletRequest request, String token, User user, String subject, String path) {
-        final String appUrl = "http://" + request.getServerName() + ":" + request.getServerPort() + request.getContextPath();
-        System.out.println(request.getServerName());
-        System.out.println(request.getServerPort());
-        System.out.println("The Context Path is:"+request.getContextPath());
-        final String recipientAddress = user.getEmail();
-        //final String subject = "Registration Confirmation";
-        final String confirmationUrl = appUrl + path + token;
-        final SimpleMailMessage email = new SimpleMailMessage();
-        email.setTo(recipientAddress);
-        email.setSubject(subject);
-        email.setText("Please open the following URL to verify your account: \r\n" + confirmationUrl);
-        email.setFrom(Objects.requireNonNull(env.getProperty("support.email")));
-        return email;
+
+    // lss.token.validation: token lookup plus the checks on it, by token type and outcome
+    private static void recordTokenValidation(final Timer timer, final long start) {
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private static Timer tokenValidationTimer(final MeterRegistry meterRegistry, final String type, final String outcome) {
+        return Timer.builder("lss.token.validation").tag("type", type).tag("outcome", outcome).register(meterRegistry);
     }
 }
@@ -1,11 +1,24 @@
 package com.baeldung.lss.web.controller;
 
+import com.baeldung.lss.persistence.PasswordHashFormatCount;
 import com.baeldung.lss.persistence.UserRepository;
+import com.baeldung.lss.persistence.UserSummary;
+import com.baeldung.lss.service.AccountMailService;
 import com.baeldung.lss.service.AsyncBean;
 import com.baeldung.lss.service.IUserService;
+import com.baeldung.lss.service.UserExportService;
+import com.baeldung.lss.service.UserImportResult;
+import com.baeldung.lss.service.UserImportService;
 import com.baeldung.lss.validation.EmailExistsException;
 import com.baeldung.lss.web.model.User;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.BindingResult;
@@ -14,10 +27,22 @@ import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Controller
 @RequestMapping("/user")
@@ -30,18 +55,144 @@ class UserController {
     private AsyncBean asyncBean;
     @Autowired
     private IUserService userService;
+    @Autowired
+    private UserExportService userExportService;
+    @Autowired
+    private UserImportService userImportService;
+    @Autowired
+    private AccountMailService accountMailService;
+
+    private static final String SORT_ID = "id";
+    private static final String SORT_EMAIL = "email";
 
+    @Value("${lss.admin.user-list.page-size:50}")
+    private int defaultPageSize;
+    @Value("${lss.admin.user-list.max-page-size:500}")
+    private int maxPageSize;
+    @Value("${lss.admin.user-list.count:approximate}")
+    private String userCountMode;
+
+    // keyset pagination: "after"/"before" carry the sort value of the last/first row shown, so every page costs the same
     @RequestMapping
     @PreAuthorize("isAdmin()")
-    public ModelAndView list() {
-        Iterable<User> users = this.userRepository.findAll();
+    public ModelAndView list(@RequestParam(value = "sort", defaultValue = "id") final String sort,
+                             @RequestParam(value = "dir", defaultValue = "asc") final String dir,
+                             @RequestParam(value = "after", required = false) final String after,
+                             @RequestParam(value = "before", required = false) final String before,
+                             @RequestParam(value = "size", required = false) final Integer size) {
+        final String sortProperty = SORT_EMAIL.equals(sort) ? SORT_EMAIL : SORT_ID;
+        final boolean ascending = !"desc".equalsIgnoreCase(dir);
+        final int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+        final boolean backward = before != null && after == null;
+        final String cursor = backward ? before : after;
+
+        // walking backward reads the preceding rows in reverse order, then flips them
+        final Sort.Direction direction = ascending != backward ? Sort.Direction.ASC : Sort.Direction.DESC;
+        final Pageable pageable = PageRequest.of(0, pageSize + 1, Sort.by(direction, sortProperty));
+        List<UserSummary> users = findSummaries(sortProperty, direction == Sort.Direction.ASC, cursor, pageable);
+        final boolean hasMore = users.size() > pageSize;
+        users = new ArrayList<>(hasMore ? users.subList(0, pageSize) : users);
+        if (backward) {
+            Collections.reverse(users);
+        }
+
+        final ModelAndView view = new ModelAndView("tl/list", "users", users);
+        if (!users.isEmpty()) {
+            final boolean hasNext = backward || hasMore;
+            final boolean hasPrevious = backward ? hasMore : cursor != null;
+            view.addObject("nextCursor", hasNext ? cursorOf(users.get(users.size() - 1), sortProperty) : null);
+            view.addObject("previousCursor", hasPrevious ? cursorOf(users.get(0), sortProperty) : null);
+        }
+        view.addObject("sort", sortProperty);
+        view.addObject("dir", ascending ? "asc" : "desc");
+        view.addObject("size", pageSize);
+        view.addObject("userCount", countUsers());
         asyncBean.asyncCall();
-        return new ModelAndView("tl/list", "users", users);
+        return view;
+    }
+
+    private List<UserSummary> findSummaries(final String sortProperty, final boolean ascending, final String cursor, final Pageable pageable) {
+        if (cursor == null) {
+            return userRepository.findSummaries(pageable);
+        }
+        if (SORT_EMAIL.equals(sortProperty)) {
+            return ascending ? userRepository.findSummariesWithEmailGreaterThan(cursor, pageable)
+                    : userRepository.findSummariesWithEmailLessThan(cursor, pageable);
+        }
+        final long id;
+        try {
+            id = Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            // not a cursor this page handed out; answering with the first page would hide the broken link
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed cursor");
+        }
+        return ascending ? userRepository.findSummariesWithIdGreaterThan(id, pageable)
+                : userRepository.findSummariesWithIdLessThan(id, pageable);
+    }
+
+    private static String cursorOf(final UserSummary user, final String sortProperty) {
+        return SORT_EMAIL.equals(sortProperty) ? user.getEmail() : String.valueOf(user.getId());
+    }
+
+    private Long countUsers() {
+        switch (userCountMode) {
+            case "exact":
+                return userRepository.count();
+            case "approximate":
+                try {
+                    return userRepository.estimateCount();
+                } catch (DataAccessException e) {
+                    // not MySQL; better no count than a full scan
+                    return null;
+                }
+            default:
+                return null;
+        }
+    }
+
+    // streams every account; nothing is buffered, so the size of the user table does not matter
+    @RequestMapping("export")
+    @PreAuthorize("isAdmin()")
+    public void export(@RequestParam(value = "format", defaultValue = "csv") final String format,
+                       final HttpServletResponse response) throws IOException {
+        final UserExportService.Format exportFormat = "ndjson".equalsIgnoreCase(format)
+                ? UserExportService.Format.NDJSON : UserExportService.Format.CSV;
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        if (exportFormat == UserExportService.Format.NDJSON) {
+            response.setContentType("application/x-ndjson");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.ndjson\"");
+        } else {
+            response.setContentType("text/csv");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.csv\"");
+        }
+        userExportService.export(exportFormat, response.getWriter());
+    }
+
+    // body: "email,password" lines; with confirm=true the accounts start disabled and get a confirmation mail
+    @RequestMapping(value = "import", method = RequestMethod.POST)
+    @PreAuthorize("isAdmin()")
+    @ResponseBody
+    public UserImportResult importUsers(@RequestParam(value = "confirm", defaultValue = "false") final boolean confirm,
+                                        final HttpServletRequest request) throws IOException {
+        final String appUrl = AccountMailService.appUrl(request);
+        return userImportService.importUsers(request.getReader(), confirm,
+                (email, token) -> accountMailService.registrationConfirmation(appUrl, email, token));
+    }
+
+    // tracks the migration of stored hashes towards the current algorithm and strength
+    @RequestMapping("hashes")
+    @PreAuthorize("isAdmin()")
+    @ResponseBody
+    public Map<String, Long> passwordHashReport() {
+        final Map<String, Long> report = new TreeMap<>();
+        for (PasswordHashFormatCount count : this.userRepository.countByPasswordHashFormat()) {
+            report.put(count.getFormat(), count.getUsers());
+        }
+        return report;
     }
 
     @RequestMapping("{id}")
     public ModelAndView view(@PathVariable("id") User user) {
-        System.out.println("In update form");
         return new ModelAndView("tl/view", "user", user);
     }
 
@@ -56,7 +207,6 @@ class UserController {
                 userService.registerNewUser(user);
                 redirect.addFlashAttribute("globalMessage", "Successfully created a new user");
             } else {
-                System.out.println("In user update");
                 userService.updateExistingUser(user);
                 redirect.addFlashAttribute("globalMessage", "Successfully updated the user");
             }
@@ -70,8 +220,7 @@ class UserController {
 
     @RequestMapping(value = "delete/{id}")
     public ModelAndView delete(@PathVariable("id") final Long id) {
-        this.userRepository.findById(id)
-                .ifPresent(user -> this.userRepository.delete(user));
+        this.userService.deleteUser(id);
         return new ModelAndView("redirect:/");
     }
 
@@ -0,0 +1,88 @@
+package com.baeldung.lss.web.model;
+
+import lombok.*;
+import org.hibernate.Hibernate;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.*;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * A mail written in the same transaction as the rows it announces and sent later by the dispatcher.
+ * Sent messages are deleted; messages that ran out of attempts stay behind as {@link Status#DEAD} for inspection
+ * until the maintenance purge removes them.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+@ToString
+@Entity
+@Table(indexes = @Index(name = "mail_outbox_due_ix", columnList = "status,nextAttemptAt"))
+public class MailOutboxMessage {
+
+    public enum Status {
+        PENDING, DEAD
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 16)
+    @Enumerated(EnumType.STRING)
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    private String recipients;
+
+    private String sender;
+
+    private String subject;
+
+    @Lob
+    @ToString.Exclude
+    private String text;
+
+    private int attempts;
+
+    @Column(nullable = false)
+    private Date nextAttemptAt;
+
+    private Date createdAt;
+
+    @Column(length = 500)
+    private String lastError;
+
+    public MailOutboxMessage(final SimpleMailMessage message) {
+        this.recipients = StringUtils.arrayToCommaDelimitedString(message.getTo());
+        this.sender = message.getFrom();
+        this.subject = message.getSubject();
+        this.text = message.getText();
+        this.createdAt = new Date();
+        this.nextAttemptAt = this.createdAt;
+    }
+
+    public SimpleMailMessage toMailMessage() {
+        final SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(StringUtils.commaDelimitedListToStringArray(recipients));
+        message.setFrom(sender);
+        message.setSubject(subject);
+        message.setText(text);
+        return message;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || Hibernate.getClass(this) != Hibernate.getClass(o)) return false;
+        MailOutboxMessage that = (MailOutboxMessage) o;
+        return id != null && Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+}
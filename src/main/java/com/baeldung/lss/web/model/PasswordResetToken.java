@@ -1,10 +1,15 @@
 package com.baeldung.lss.web.model;
 
 import javax.persistence.*;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "password_reset_token_key_ux", columnList = "tokenKey", unique = true),
+        @Index(name = "password_reset_token_expiry_ix", columnList = "expiryDate")
+})
 public class PasswordResetToken {
 
     private static final int EXPIRATION = 60 * 24;
@@ -13,7 +18,9 @@ public class PasswordResetToken {
     @GeneratedValue(strategy = GenerationType.AUTO)
     private Long id;
 
-    private String token;
+    // 16 random bytes; the legacy varchar "token" column is only read by LegacyTokenMigration
+    @Column(name = "tokenKey", columnDefinition = "binary(16)")
+    private byte[] token;
 
     @OneToOne(fetch = FetchType.EAGER)
     @JoinColumn(nullable = false, name = "user_id")
@@ -25,7 +32,7 @@ public class PasswordResetToken {
         super();
     }
 
-    public PasswordResetToken(final String token, final User user) {
+    public PasswordResetToken(final byte[] token, final User user) {
         super();
 
         this.token = token;
@@ -35,11 +42,11 @@ public class PasswordResetToken {
 
     //
 
-    public String getToken() {
+    public byte[] getToken() {
         return token;
     }
 
-    public void setToken(final String token) {
+    public void setToken(final byte[] token) {
         this.token = token;
     }
 
@@ -66,7 +73,7 @@ public class PasswordResetToken {
         return new Date(cal.getTime().getTime());
     }
 
-    public void updateToken(final String token) {
+    public void updateToken(final byte[] token) {
         this.token = token;
         this.expiryDate = calculateExpiryDate(EXPIRATION);
     }
@@ -78,7 +85,7 @@ public class PasswordResetToken {
         final int prime = 31;
         int result = 1;
         result = prime * result + ((expiryDate == null) ? 0 : expiryDate.hashCode());
-        result = prime * result + ((token == null) ? 0 : token.hashCode());
+        result = prime * result + Arrays.hashCode(token);
         result = prime * result + ((user == null) ? 0 : user.hashCode());
         return result;
     }
@@ -102,11 +109,7 @@ public class PasswordResetToken {
         } else if (!expiryDate.equals(other.expiryDate)) {
             return false;
         }
-        if (token == null) {
-            if (other.token != null) {
-                return false;
-            }
-        } else if (!token.equals(other.token)) {
+        if (!Arrays.equals(token, other.token)) {
             return false;
         }
         if (user == null) {
@@ -122,10 +125,7 @@ public class PasswordResetToken {
     @Override
     public String toString() {
         final StringBuilder builder = new StringBuilder();
-        builder.append("Token [String=")
-            .append(token)
-            .append("]")
-            .append("[Expires")
+        builder.append("Token [Expires")
             .append(expiryDate)
             .append("]");
         return builder.toString();
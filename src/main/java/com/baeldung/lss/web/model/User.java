@@ -3,14 +3,23 @@ package com.baeldung.lss.web.model;
 import com.baeldung.lss.validation.PasswordMatches;
 import lombok.*;
 import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import javax.persistence.*;
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotEmpty;
 import java.util.Calendar;
+import java.util.Locale;
 import java.util.Objects;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user")
+@NaturalIdCache(region = "user-natural-id")
+@Table(indexes = @Index(name = User.EMAIL_INDEX, columnList = "email", unique = true))
 @PasswordMatches
 @Getter
 @Setter
@@ -18,14 +27,27 @@ import java.util.Objects;
 @RequiredArgsConstructor
 public class User {
 
+    public static final String EMAIL_INDEX = "user_email_ux";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // mutable: an admin can change a user's email. Hibernate folds the natural id's unique key into user_email_ux
+    @NaturalId(mutable = true)
     @Email
     @NotEmpty(message = "Email is required.")
     private String email;
 
+    // emails are stored trimmed and lower-cased so that the unique index covers spelling variants
+    public void setEmail(String email) {
+        this.email = normalizeEmail(email);
+    }
+
+    public static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
     @NotEmpty(message = "Password is required.")
     private String password;
 
@@ -41,8 +63,10 @@ public class User {
 
     @Column
     private Boolean enabled ;
-    @OneToOne(fetch = FetchType.EAGER, mappedBy = "user", cascade = CascadeType.REMOVE)
-    private VerificationToken verificationToken;
+
+    // bumped on every password change; signed remember-me cookies carry it and die with it
+    @Column(columnDefinition = "integer default 0 not null")
+    private int credentialEpoch;
 
 //    @Override
 //    public String toString() {
@@ -14,6 +14,10 @@ import java.util.Objects;
 @Setter
 @ToString
 @Entity
+@Table(indexes = {
+        @Index(name = "verification_token_key_ux", columnList = "tokenKey", unique = true),
+        @Index(name = "verification_token_expiry_ix", columnList = "expiryDate")
+})
 public class VerificationToken {
 
     private static final int EXPIRATION = 60 * 24;
@@ -23,7 +27,10 @@ public class VerificationToken {
     @Column(name = "id", nullable = false)
     private Long id;
 
-    private String token;
+    // 16 random bytes; the legacy varchar "token" column is only read by LegacyTokenMigration
+    @Column(name = "tokenKey", columnDefinition = "binary(16)")
+    @ToString.Exclude
+    private byte[] token;
 
     @OneToOne(targetEntity = User.class, fetch = FetchType.EAGER)
     @JoinColumn(nullable = false, name = "user_id")
@@ -31,7 +38,7 @@ public class VerificationToken {
 
     private Date expiryDate;
 
-    public VerificationToken(final String token, final User user) {
+    public VerificationToken(final byte[] token, final User user) {
         super();
         this.token = token;
         this.user = user;
@@ -0,0 +1,2 @@
+-- test@email.com/pass
+insert into "User" (id, email, password, created) values (1, 'test@email.com', '$2a$04$kqRvgmJBlWZQQ2c9NT9IH.ZhxFY07Y2xE73vmLHxBq2hNTvGvUc5m', '2023-02-03 00:00:00');
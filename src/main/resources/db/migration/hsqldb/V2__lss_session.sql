@@ -0,0 +1,18 @@
+-- HttpSession store (JdbcSessionRepository, lss.session.store=jdbc): one row per session, one row per attribute, so
+-- nodes that set different attributes of the same session do not overwrite each other
+create table lss_session(
+    id varchar(36) primary key,
+    creation_time bigint not null,
+    last_access_time bigint not null,
+    max_inactive_seconds int not null,
+    expiry_time bigint not null
+);
+create index lss_session_expiry_ix on lss_session (expiry_time);
+create table lss_session_attributes(
+    session_id varchar(36) not null,
+    attribute_name varchar(200) not null,
+    attribute_bytes longvarbinary not null,
+    primary key (session_id, attribute_name),
+    constraint lss_session_attributes_session_fk foreign key (session_id) references lss_session (id)
+        on delete cascade on update cascade
+);
@@ -0,0 +1,9 @@
+-- remember-me tokens (JdbcTokenRepositoryImpl); older databases may already have the table from data.sql, but not the
+-- last_used index the maintenance purge selects through
+create table if not exists persistent_logins(
+    username varchar(64) not null,
+    series varchar(64) primary key,
+    token varchar(64) not null,
+    last_used timestamp not null
+);
+create index persistent_logins_last_used_ix on persistent_logins (last_used);
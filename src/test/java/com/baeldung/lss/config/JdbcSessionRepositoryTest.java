@@ -0,0 +1,254 @@
+package com.baeldung.lss.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Two repositories over one embedded database stand in for two nodes sharing the session store.
+ */
+public class JdbcSessionRepositoryTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JdbcSessionRepositoryTest.class);
+
+    private static final int REQUESTS = 2_000;
+
+    private HikariDataSource dataSource;
+
+    private JdbcSessionRepository node1;
+
+    private JdbcSessionRepository node2;
+
+    @Before
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:hsqldb:mem:sessions-" + UUID.randomUUID() + ";sql.syntax_mys=true");
+        dataSource.setUsername("sa");
+        new SchemaMigrations(dataSource).migrate();
+        node1 = new JdbcSessionRepository(dataSource, Duration.ofMinutes(30), 100);
+        node2 = new JdbcSessionRepository(dataSource, Duration.ofMinutes(30), 100);
+    }
+
+    @After
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    public void whenNodesSetDifferentAttributes_thenBothAreKept() {
+        final String id = created("shared", "initial");
+
+        final JdbcSessionRepository.JdbcSession onNode1 = node1.findById(id);
+        final JdbcSessionRepository.JdbcSession onNode2 = node2.findById(id);
+        onNode1.setAttribute("cart", "3 items");
+        onNode2.setAttribute("locale", "de");
+        node1.save(onNode1);
+        node2.save(onNode2);
+
+        final JdbcSessionRepository.JdbcSession read = node1.findById(id);
+        assertEquals("3 items", read.getAttribute("cart"));
+        assertEquals("de", read.getAttribute("locale"));
+        assertEquals("initial", read.getAttribute("shared"));
+    }
+
+    @Test
+    public void whenOneNodeRemovesAnAttribute_thenTheOtherNodesChangeSurvives() {
+        final String id = created("flash", "saved");
+
+        final JdbcSessionRepository.JdbcSession onNode1 = node1.findById(id);
+        final JdbcSessionRepository.JdbcSession onNode2 = node2.findById(id);
+        onNode1.removeAttribute("flash");
+        onNode2.setAttribute("locale", "fr");
+        node2.save(onNode2);
+        node1.save(onNode1);
+
+        final JdbcSessionRepository.JdbcSession read = node2.findById(id);
+        assertNull(read.getAttribute("flash"));
+        assertEquals("fr", read.getAttribute("locale"));
+        assertEquals(1, node1.getAttributeDeletes());
+    }
+
+    @Test
+    public void whenManyRequestsOnBothNodesSetTheirOwnAttribute_thenNoneIsLost() throws Exception {
+        final String id = created("shared", "initial");
+        final int requests = 40;
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < requests; i++) {
+                final JdbcSessionRepository node = i % 2 == 0 ? node1 : node2;
+                final String name = "attribute-" + i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    final JdbcSessionRepository.JdbcSession session = node.findById(id);
+                    session.setAttribute(name, name.toUpperCase());
+                    node.save(session);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        final JdbcSessionRepository.JdbcSession read = node1.findById(id);
+        assertEquals(requests + 1, read.getAttributeNames().size());
+        for (int i = 0; i < requests; i++) {
+            assertEquals("ATTRIBUTE-" + i, read.getAttribute("attribute-" + i));
+        }
+    }
+
+    @Test
+    public void whenNothingChanged_thenNoAttributeIsWritten() {
+        final String id = created("user", "someone");
+        final long writes = node1.getAttributeWrites();
+
+        final JdbcSessionRepository.JdbcSession session = node1.findById(id);
+        session.setAttribute("user", "someone");
+        session.setLastAccessedTime(Instant.now());
+        node1.save(session);
+
+        assertEquals(writes, node1.getAttributeWrites());
+        assertEquals(1, node1.getUnchangedSaves());
+        assertEquals(1, node1.getPendingTouches());
+    }
+
+    @Test
+    public void whenTheIdChanges_thenAttributesMoveWithIt() {
+        final String oldId = created("user", "someone");
+
+        final JdbcSessionRepository.JdbcSession session = node1.findById(oldId);
+        final String newId = session.changeSessionId();
+        node1.save(session);
+
+        assertNull(node2.findById(oldId));
+        assertEquals("someone", node2.findById(newId).getAttribute("user"));
+    }
+
+    @Test
+    public void whenDeletedOrExpired_thenAttributesGoWithTheSession() {
+        final String deleted = created("user", "someone");
+        final JdbcSessionRepository.JdbcSession expiring = node1.createSession();
+        expiring.setAttribute("user", "someone else");
+        expiring.setLastAccessedTime(Instant.now().minus(Duration.ofHours(1)));
+        node1.save(expiring);
+        final JdbcSessionRepository.JdbcSession stale = node2.findById(deleted);
+
+        node1.deleteById(deleted);
+        node2.deleteExpiredSessions();
+        stale.setAttribute("late", "write");
+        node2.save(stale);
+
+        assertEquals(1, node2.getExpiredDeletes());
+        assertNull(node1.findById(deleted));
+        assertEquals(0, new JdbcTemplate(dataSource).queryForObject("select count(*) from lss_session_attributes", Integer.class).intValue());
+    }
+
+    @Test
+    public void whenRequestsOnlyTouchOrAlsoChangeAnAttribute_thenReportsTheFindAndSaveCostOfEach() {
+        final AtomicLong statements = new AtomicLong();
+        final JdbcSessionRepository node = new JdbcSessionRepository(new CountingDataSource(dataSource, statements), Duration.ofMinutes(30), 100);
+        final JdbcSessionRepository.JdbcSession created = node.createSession();
+        created.setAttribute("SPRING_SECURITY_CONTEXT", "someone@example.com with a few authorities");
+        created.setAttribute("locale", "en");
+        created.setAttribute("cart", 0);
+        node.save(created);
+        final String id = created.getId();
+
+        final Request touch = i -> {
+            final JdbcSessionRepository.JdbcSession session = node.findById(id);
+            session.setLastAccessedTime(Instant.now());
+            node.save(session);
+        };
+        final Request change = i -> {
+            final JdbcSessionRepository.JdbcSession session = node.findById(id);
+            session.setAttribute("cart", i);
+            session.setLastAccessedTime(Instant.now());
+            node.save(session);
+        };
+        requests(node, touch, statements);
+        requests(node, change, statements);
+        final double[] touchOnly = requests(node, touch, statements);
+        final double[] changing = requests(node, change, statements);
+
+        LOG.info("Session find+save: {} us and {} statements per touch-only request (touches flushed in batches), "
+                + "{} us and {} statements per attribute-changing request", String.format("%.1f", touchOnly[0]),
+                String.format("%.2f", touchOnly[1]), String.format("%.1f", changing[0]), String.format("%.2f", changing[1]));
+        assertEquals(REQUESTS - 1, ((Integer) node.findById(id).getAttribute("cart")).intValue());
+    }
+
+    // microseconds and statements per request, including the touch flush that follows them
+    private static double[] requests(final JdbcSessionRepository node, final Request request, final AtomicLong statements) {
+        statements.set(0);
+        final long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            request.run(i);
+        }
+        node.flushTouches();
+        final long nanos = System.nanoTime() - start;
+        return new double[]{nanos / 1000.0 / REQUESTS, statements.get() / (double) REQUESTS};
+    }
+
+    private String created(final String name, final Object value) {
+        final JdbcSessionRepository.JdbcSession session = node1.createSession();
+        session.setAttribute(name, value);
+        node1.save(session);
+        return session.getId();
+    }
+
+    private interface Request {
+        void run(int i);
+    }
+
+    private static final class CountingDataSource extends DelegatingDataSource {
+
+        private final AtomicLong statements;
+
+        private CountingDataSource(final HikariDataSource target, final AtomicLong statements) {
+            super(target);
+            this.statements = statements;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            final Connection connection = super.getConnection();
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                if (method.getName().startsWith("prepare") || method.getName().equals("createStatement")) {
+                    statements.incrementAndGet();
+                }
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        }
+    }
+}
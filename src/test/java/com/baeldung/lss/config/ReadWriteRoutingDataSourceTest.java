@@ -0,0 +1,145 @@
+package com.baeldung.lss.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A primary and two replicas, each its own embedded database that knows its name, behind the routing data source
+ * the way the application wires it.
+ */
+public class ReadWriteRoutingDataSourceTest {
+
+    private final List<HikariDataSource> databases = new ArrayList<>();
+
+    private ReadWriteRoutingDataSource routing;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate readWrite;
+
+    private TransactionTemplate readOnly;
+
+    private final AtomicInteger committedWrites = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        routing = routing(database("primary"), Arrays.asList(database("replica-1"), database("replica-2")));
+        final LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        final DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        ReplicaRouting.setWriteListener(committedWrites::incrementAndGet);
+    }
+
+    @After
+    public void tearDown() {
+        ReplicaRouting.setWriteListener(null);
+        ReplicaRouting.pinToPrimary(false);
+        databases.forEach(HikariDataSource::close);
+    }
+
+    @Test
+    public void whenTransactionsAreReadOnly_thenTheyAlternateBetweenTheReplicas() {
+        final List<String> served = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            served.add(readOnly.execute(status -> name()));
+        }
+
+        assertEquals(Arrays.asList("replica-1", "replica-2", "replica-1", "replica-2"), served);
+        assertEquals("primary", readWrite.execute(status -> name()));
+        assertEquals(Long.valueOf(2), routing.getStatementCounts().get("replica-1"));
+    }
+
+    @Test
+    public void whenAReadWriteTransactionOnlyReads_thenTheClientIsNotPinned() {
+        readWrite.execute(status -> name());
+
+        assertEquals(0, committedWrites.get());
+    }
+
+    @Test
+    public void whenAReadWriteTransactionWrites_thenTheCommitPinsTheClient() {
+        readWrite.execute(status -> jdbcTemplate.update("update node set name = name"));
+
+        assertEquals(1, committedWrites.get());
+    }
+
+    @Test
+    public void whenAWriteIsRolledBack_thenTheClientIsNotPinned() {
+        readWrite.execute(status -> {
+            jdbcTemplate.update("update node set name = name");
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertEquals(0, committedWrites.get());
+    }
+
+    @Test
+    public void whenPinnedToThePrimary_thenReadOnlyTransactionsReadThePrimary() {
+        assertEquals("primary", ReplicaRouting.onPrimary(() -> readOnly.execute(status -> name())));
+    }
+
+    @Test
+    public void whenThereAreNoReplicas_thenConnectionsAreNotWrapped() throws Exception {
+        final ReadWriteRoutingDataSource primaryOnly = routing(database("primary"), Collections.emptyList());
+
+        try (Connection connection = primaryOnly.getConnection()) {
+            assertFalse(Proxy.isProxyClass(connection.getClass()));
+        }
+        try (Connection connection = routing.getConnection()) {
+            assertTrue(Proxy.isProxyClass(connection.getClass()));
+        }
+        assertEquals(Long.valueOf(1), primaryOnly.getConnectionCounts().get(ReadWriteRoutingDataSource.PRIMARY));
+    }
+
+    @Test
+    public void whenClassifyingStatements_thenOnlyQueriesAreReads() {
+        assertTrue(ReadWriteRoutingDataSource.isQuery("select * from user_account"));
+        assertTrue(ReadWriteRoutingDataSource.isQuery("/* load User */ SELECT u.id from user_account u"));
+        assertFalse(ReadWriteRoutingDataSource.isQuery("update user_account set enabled = true"));
+        assertFalse(ReadWriteRoutingDataSource.isQuery("/* insert User */ insert into user_account values (1)"));
+    }
+
+    private String name() {
+        return jdbcTemplate.queryForObject("select name from node", String.class);
+    }
+
+    private ReadWriteRoutingDataSource routing(final HikariDataSource primary, final List<HikariDataSource> replicas) {
+        final ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, replicas);
+        dataSource.afterPropertiesSet();
+        return dataSource;
+    }
+
+    private HikariDataSource database(final String name) {
+        final HikariDataSource database = new HikariDataSource();
+        database.setJdbcUrl("jdbc:hsqldb:mem:" + name + "-" + UUID.randomUUID() + ";sql.syntax_mys=true");
+        database.setUsername("sa");
+        final JdbcTemplate jdbc = new JdbcTemplate(database);
+        jdbc.execute("create table node (name varchar(20))");
+        jdbc.update("insert into node values (?)", name);
+        databases.add(database);
+        return database;
+    }
+}
@@ -0,0 +1,62 @@
+package com.baeldung.lss.config;
+
+import com.baeldung.lss.spring.LssApp;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = LssApp.class)
+@ActiveProfiles({"hsqldb", "test"})
+public class SchemaMigrationsIntegrationTest {
+
+    @Autowired
+    private SchemaMigrations schemaMigrations;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource dataSource;
+
+    @Test
+    public void whenStarted_thenTablesOutsideTheMappingHaveTheirIndexes() throws SQLException {
+        assertTrue(indexes("PERSISTENT_LOGINS").contains("PERSISTENT_LOGINS_LAST_USED_IX"));
+    }
+
+    @Test
+    public void whenMigratedAgain_thenNothingRuns() {
+        assertEquals(0, schemaMigrations.migrate().migrationsExecuted);
+        assertEquals(0, new JdbcTemplate(dataSource).queryForObject("select count(*) from persistent_logins", Integer.class).intValue());
+    }
+
+    private Set<String> indexes(final String table) throws SQLException {
+        final Set<String> names = new HashSet<>();
+        try (Connection connection = dataSource.getConnection()) {
+            final DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet rs = metaData.getIndexInfo(null, null, table, false, false)) {
+                while (rs.next()) {
+                    if (rs.getString("INDEX_NAME") != null) {
+                        names.add(rs.getString("INDEX_NAME").toUpperCase(Locale.ROOT));
+                    }
+                }
+            }
+        }
+        return names;
+    }
+}
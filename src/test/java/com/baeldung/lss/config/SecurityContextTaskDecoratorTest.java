@@ -0,0 +1,213 @@
+package com.baeldung.lss.config;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs decorated tasks on an executor built like the one in {@link AsyncConfig}: few threads, each reused for many
+ * tasks of different users, and a queue small enough that callers run some of the tasks themselves.
+ */
+public class SecurityContextTaskDecoratorTest {
+
+    private final List<ThreadPoolTaskExecutor> executors = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        executors.forEach(ThreadPoolTaskExecutor::shutdown);
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void whenManyUsersSubmitToFewThreads_thenEveryTaskSeesItsSubmitter() throws Exception {
+        final ThreadPoolTaskExecutor executor = executor(2, 4);
+        final int submitters = 8;
+        final int tasksPerSubmitter = 200;
+        final Queue<String> mismatches = new ConcurrentLinkedQueue<>();
+        final Queue<String> callerThreads = new ConcurrentLinkedQueue<>();
+        final AtomicInteger ran = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(submitters * tasksPerSubmitter);
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService callers = Executors.newFixedThreadPool(submitters);
+        final List<Future<?>> submitted = new ArrayList<>();
+        try {
+            for (int s = 0; s < submitters; s++) {
+                // every other submitter is anonymous, which must not see a principal left by an earlier task
+                final String user = s % 2 == 0 ? "user-" + s : null;
+                submitted.add(callers.submit(() -> {
+                    start.await();
+                    final SecurityContext own = SecurityContextHolder.createEmptyContext();
+                    final Authentication expected = user == null ? null : authentication(user);
+                    own.setAuthentication(expected);
+                    SecurityContextHolder.setContext(own);
+                    final Thread caller = Thread.currentThread();
+                    for (int t = 0; t < tasksPerSubmitter; t++) {
+                        executor.execute(() -> {
+                            final Authentication seen = SecurityContextHolder.getContext().getAuthentication();
+                            final String name = seen == null ? null : seen.getName();
+                            if (user == null ? name != null : !user.equals(name)) {
+                                mismatches.add(user + " saw " + name);
+                            }
+                            if (Thread.currentThread() == caller) {
+                                callerThreads.add(caller.getName());
+                            }
+                            ran.incrementAndGet();
+                            done.countDown();
+                            pause();
+                        });
+                        if (SecurityContextHolder.getContext() != own || own.getAuthentication() != expected) {
+                            mismatches.add(user + " lost its own context after submitting");
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : submitted) {
+                future.get();
+            }
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+        } finally {
+            callers.shutdown();
+        }
+
+        assertEquals(submitters * tasksPerSubmitter, ran.get());
+        assertEquals(String.valueOf(mismatches), 0, mismatches.size());
+        assertTrue("the queue never filled up", !callerThreads.isEmpty());
+        assertTrue(executor.getThreadPoolExecutor().getLargestPoolSize() <= 2);
+    }
+
+    @Test
+    public void whenTheCallerRunsTheTask_thenItsOwnContextSurvivesWhatTheTaskDoes() throws Exception {
+        final ThreadPoolTaskExecutor executor = executor(1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        // occupy the only thread and the only queue slot, so the next task is rejected to the caller
+        executor.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        executor.execute(() -> { });
+
+        final SecurityContext own = SecurityContextHolder.createEmptyContext();
+        final Authentication caller = authentication("caller");
+        own.setAuthentication(caller);
+        SecurityContextHolder.setContext(own);
+        final AtomicReference<Thread> ranOn = new AtomicReference<>();
+        final AtomicReference<Authentication> seen = new AtomicReference<>();
+        executor.execute(() -> {
+            ranOn.set(Thread.currentThread());
+            seen.set(SecurityContextHolder.getContext().getAuthentication());
+            // a task that logs someone else in, or clears its context, must not change the caller's
+            SecurityContextHolder.getContext().setAuthentication(authentication("someone else"));
+            SecurityContextHolder.clearContext();
+        });
+        release.countDown();
+
+        assertSame(Thread.currentThread(), ranOn.get());
+        assertSame(caller, seen.get());
+        assertSame(own, SecurityContextHolder.getContext());
+        assertSame(caller, own.getAuthentication());
+    }
+
+    @Test
+    public void whenAnAnonymousCallerRunsTheTask_thenItStaysAnonymous() throws Exception {
+        final ThreadPoolTaskExecutor executor = executor(1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        executor.execute(() -> { });
+
+        final SecurityContext own = SecurityContextHolder.getContext();
+        final AtomicReference<Thread> ranOn = new AtomicReference<>();
+        executor.execute(() -> {
+            ranOn.set(Thread.currentThread());
+            SecurityContextHolder.getContext().setAuthentication(authentication("someone"));
+        });
+        release.countDown();
+
+        assertSame(Thread.currentThread(), ranOn.get());
+        assertSame(own, SecurityContextHolder.getContext());
+        assertNull(own.getAuthentication());
+    }
+
+    @Test
+    public void whenAThreadIsReused_thenTheNextTaskDoesNotSeeThePreviousPrincipal() throws Exception {
+        final ThreadPoolTaskExecutor executor = executor(1, 10);
+        final AtomicReference<Thread> first = new AtomicReference<>();
+        final AtomicReference<Thread> second = new AtomicReference<>();
+        final AtomicReference<Authentication> seen = new AtomicReference<>(authentication("placeholder"));
+
+        SecurityContextHolder.getContext().setAuthentication(authentication("first"));
+        executor.submit(() -> first.set(Thread.currentThread())).get();
+        SecurityContextHolder.clearContext();
+        executor.submit(() -> {
+            second.set(Thread.currentThread());
+            seen.set(SecurityContextHolder.getContext().getAuthentication());
+        }).get();
+
+        assertSame(first.get(), second.get());
+        assertNull(seen.get());
+    }
+
+    private ThreadPoolTaskExecutor executor(final int threads, final int queueCapacity) {
+        final SecurityContextTaskDecorator decorator = new SecurityContextTaskDecorator();
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setTaskDecorator(decorator);
+        executor.initialize();
+        decorator.setExecutor(executor);
+        executors.add(executor);
+        return executor;
+    }
+
+    private static Authentication authentication(final String name) {
+        return new UsernamePasswordAuthenticationToken(name, "n/a", new ArrayList<>());
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.baeldung.lss.config;
+
+import com.baeldung.lss.spring.LssApp;
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Starts the application on a real port, once on Tomcat's platform thread pool and once with the
+ * {@code virtual-threads} profile, and drives the login, registration and password reset flows from concurrent
+ * clients, reporting requests/sec and latency per flow. The virtual-thread run needs JDK 21 and is skipped on older
+ * JDKs.
+ */
+public class VirtualThreadsConfigIntegrationTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualThreadsConfigIntegrationTest.class);
+
+    private static final int CLIENTS = 8;
+    private static final int REQUESTS_PER_CLIENT = 5;
+    private static final String PASSWORD = "secret";
+
+    @Test
+    public void whenServedByPlatformThreads_thenReportsThroughputPerFlow() throws Exception {
+        load("platform threads", "hsqldb", "test");
+    }
+
+    @Test
+    public void whenServedByVirtualThreads_thenReportsThroughputPerFlow() throws Exception {
+        Assume.assumeTrue("virtual threads need JDK 21, running on " + System.getProperty("java.version"), virtualThreadsAvailable());
+        load("virtual threads", "hsqldb", "test", VirtualThreadsConfig.PROFILE);
+    }
+
+    private void load(final String mode, final String... profiles) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(LssApp.class)
+                .profiles(profiles)
+                // a second context in the same JVM would clash over the MBean names
+                .properties("server.port=0", "spring.jmx.enabled=false")
+                .run()) {
+            final String base = "http://localhost:" + ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            seedAccounts(context);
+
+            final Flow login = (client, i) -> post(base + "/doLogin", "username", email("member", client), "password", PASSWORD);
+            final Flow register = (client, i) -> post(base + "/user/register", "email", email("new-" + client, i),
+                    "password", PASSWORD, "passwordConfirmation", PASSWORD);
+            final Flow reset = (client, i) -> post(base + "/user/resetPassword", "email", email("member", client));
+
+            // one untimed round, so that the first flow measured does not carry the JIT warm-up of all three
+            for (Flow flow : Arrays.asList(login, register, reset)) {
+                flow.run(0, -1);
+            }
+            report(mode, "login", login, "/");
+            report(mode, "register", register, "/login");
+            report(mode, "reset", reset, "/login");
+        }
+    }
+
+    private void report(final String mode, final String name, final Flow flow, final String expectedRedirect) throws Exception {
+        final ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<long[]>> results = new ArrayList<>();
+        try {
+            for (int c = 0; c < CLIENTS; c++) {
+                final int client = c;
+                results.add(clients.submit(() -> {
+                    start.await();
+                    final long[] nanos = new long[REQUESTS_PER_CLIENT];
+                    for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+                        final long begin = System.nanoTime();
+                        final String location = flow.run(client, i);
+                        nanos[i] = System.nanoTime() - begin;
+                        assertTrue(name + " redirected to " + location, location != null && location.endsWith(expectedRedirect));
+                    }
+                    return nanos;
+                }));
+            }
+            final long began = System.nanoTime();
+            start.countDown();
+            final long[] all = new long[CLIENTS * REQUESTS_PER_CLIENT];
+            for (int c = 0; c < CLIENTS; c++) {
+                System.arraycopy(results.get(c).get(5, TimeUnit.MINUTES), 0, all, c * REQUESTS_PER_CLIENT, REQUESTS_PER_CLIENT);
+            }
+            final long elapsed = System.nanoTime() - began;
+            Arrays.sort(all);
+            LOG.info("{} on {}: {} requests/sec from {} clients, {} ms median, {} ms p95", name, mode,
+                    String.format("%.1f", all.length * 1e9 / elapsed), CLIENTS,
+                    TimeUnit.NANOSECONDS.toMillis(all[all.length / 2]), TimeUnit.NANOSECONDS.toMillis(all[all.length * 95 / 100]));
+        } finally {
+            clients.shutdown();
+        }
+    }
+
+    // enabled accounts for the login and reset flows, one per client
+    private static void seedAccounts(final ConfigurableApplicationContext context) {
+        final String hash = context.getBean("hashingPasswordEncoder", PasswordEncoder.class).encode(PASSWORD);
+        final Timestamp created = new Timestamp(System.currentTimeMillis());
+        final List<Object[]> accounts = new ArrayList<>();
+        for (int c = 0; c < CLIENTS; c++) {
+            accounts.add(new Object[]{email("member", c), hash, created});
+        }
+        context.getBean(JdbcTemplate.class)
+                .batchUpdate("insert into \"User\" (email, password, created, enabled, credentialEpoch) values (?, ?, ?, true, 0)", accounts);
+    }
+
+    // the Location of the redirect every one of these flows answers with
+    private static String post(final String url, final String... parameters) throws IOException {
+        final StringBuilder form = new StringBuilder();
+        for (int i = 0; i < parameters.length; i += 2) {
+            if (form.length() > 0) {
+                form.append('&');
+            }
+            form.append(parameters[i]).append('=').append(URLEncoder.encode(parameters[i + 1], "UTF-8"));
+        }
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setInstanceFollowRedirects(false);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+        try (OutputStream body = connection.getOutputStream()) {
+            body.write(form.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        try {
+            assertEquals(url, HttpURLConnection.HTTP_MOVED_TEMP, connection.getResponseCode());
+            return connection.getHeaderField("Location");
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static boolean virtualThreadsAvailable() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static String email(final String prefix, final int i) {
+        return prefix + i + "@example.com";
+    }
+
+    private interface Flow {
+        String run(int client, int request) throws IOException;
+    }
+}
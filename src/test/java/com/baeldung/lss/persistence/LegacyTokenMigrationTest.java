@@ -0,0 +1,115 @@
+package com.baeldung.lss.persistence;
+
+import com.baeldung.lss.security.Tokens;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Seeds the verification token table in its legacy shape, migrates it, and reports a token lookup on the old
+ * unindexed varchar column against the same lookup on the indexed binary key, at growing row counts.
+ */
+public class LegacyTokenMigrationTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LegacyTokenMigrationTest.class);
+
+    private static final int LOOKUPS = 200;
+
+    private HikariDataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:hsqldb:mem:tokens-" + UUID.randomUUID() + ";sql.syntax_mys=true");
+        dataSource.setUsername("sa");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // the legacy column next to the new one, as the schema update leaves it
+        jdbcTemplate.execute("create table VerificationToken (id bigint generated by default as identity primary key, "
+                + "token varchar(255), tokenKey binary(16), expiryDate timestamp, user_id bigint not null)");
+        jdbcTemplate.execute("create unique index verification_token_key_ux on VerificationToken (tokenKey)");
+    }
+
+    @After
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    public void whenTheTableGrows_thenReportsTheLegacyAndTheBinaryKeyLookup() {
+        final LegacyTokenMigration migration = new LegacyTokenMigration(dataSource);
+        ReflectionTestUtils.setField(migration, "batchSize", 5_000);
+        int rows = 0;
+        for (int target : new int[]{10_000, 100_000}) {
+            final List<String> legacy = seed(target - rows);
+            rows = target;
+            final String[] probes = probes(legacy);
+            final long varchar = medianLookupNanos(probes, "select user_id from VerificationToken where token = ?", false);
+
+            migration.migrate();
+            final long binary = medianLookupNanos(probes, "select user_id from VerificationToken where tokenKey = ?", true);
+
+            LOG.info("Token lookup at {} rows: {} us on the legacy varchar column, {} us on the binary(16) key",
+                    rows, varchar / 1000.0, binary / 1000.0);
+        }
+        assertEquals(Integer.valueOf(0), jdbcTemplate.queryForObject("select count(*) from VerificationToken where token is not null", Integer.class));
+    }
+
+    @Test
+    public void whenALegacyTokenIsMigrated_thenItsMailedLinkDecodesToTheStoredKey() {
+        final String mailed = seed(1).get(0);
+
+        new LegacyTokenMigration(dataSource).migrate();
+
+        final byte[] stored = jdbcTemplate.queryForObject("select tokenKey from VerificationToken", byte[].class);
+        assertArrayEquals(stored, Tokens.decode(mailed));
+    }
+
+    private List<String> seed(final int count) {
+        final List<String> tokens = new ArrayList<>(count);
+        final List<Object[]> batch = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final String token = UUID.randomUUID().toString();
+            tokens.add(token);
+            batch.add(new Object[]{token, i});
+        }
+        jdbcTemplate.batchUpdate("insert into VerificationToken (token, expiryDate, user_id) values (?, current_timestamp, ?)", batch);
+        return tokens;
+    }
+
+    private static String[] probes(final List<String> tokens) {
+        final String[] probes = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            probes[i] = tokens.get((int) ((long) i * tokens.size() / LOOKUPS));
+        }
+        return probes;
+    }
+
+    // as findByToken does it: the link value is decoded to the key before the query
+    private long medianLookupNanos(final String[] probes, final String sql, final boolean binary) {
+        final long[] nanos = new long[probes.length];
+        for (int i = 0; i < probes.length; i++) {
+            final Object key = binary ? Tokens.decode(probes[i]) : probes[i];
+            final long start = System.nanoTime();
+            final List<Long> found = jdbcTemplate.queryForList(sql, Long.class, key);
+            nanos[i] = System.nanoTime() - start;
+            assertEquals(1, found.size());
+        }
+        Arrays.sort(nanos);
+        return nanos[nanos.length / 2];
+    }
+}
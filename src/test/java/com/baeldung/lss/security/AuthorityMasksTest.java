@@ -0,0 +1,40 @@
+package com.baeldung.lss.security;
+
+import org.junit.Test;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class AuthorityMasksTest {
+
+    private final AuthorityMasks authorityMasks = new AuthorityMasks();
+
+    @Test
+    public void whenNameWasNeverGranted_thenItIsNotInterned() {
+        authorityMasks.mask(AuthorityUtils.createAuthorityList("USER"));
+
+        assertEquals(AuthorityMasks.NOT_GRANTED, authorityMasks.bit("ADMIN"));
+        assertEquals(AuthorityMasks.NOT_GRANTED, authorityMasks.bit("ADMIN"));
+        assertEquals(0, authorityMasks.bit("USER"));
+    }
+
+    @Test
+    public void whenEqualAuthoritiesComeFromDifferentInstances_thenTheyShareAMask() {
+        final long mask = authorityMasks.mask(AuthorityUtils.createAuthorityList("USER", "ADMIN"));
+
+        // e.g. an authentication read back from a JDBC session
+        assertEquals(mask, authorityMasks.mask(AuthorityUtils.createAuthorityList("ADMIN", "USER")));
+        assertNotEquals(mask, authorityMasks.mask(AuthorityUtils.createAuthorityList("USER")));
+    }
+
+    @Test
+    public void whenMoreThan64NamesAreGranted_thenTheRestHaveNoBit() {
+        for (int i = 0; i < 70; i++) {
+            authorityMasks.mask(AuthorityUtils.createAuthorityList("NAME_" + i));
+        }
+
+        assertEquals(63, authorityMasks.bit("NAME_63"));
+        assertEquals(AuthorityMasks.NO_BIT, authorityMasks.bit("NAME_64"));
+    }
+}
@@ -0,0 +1,54 @@
+package com.baeldung.lss.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BoundedPasswordEncoderTest {
+
+    private BoundedPasswordEncoder encoder;
+
+    @After
+    public void tearDown() {
+        encoder.shutdown();
+    }
+
+    @Test
+    public void whenHashingFails_thenItIsCountedAsAFailureNotACompletion() {
+        encoder = new BoundedPasswordEncoder(new FailingOnEmptyEncoder(), 1, 10, 1, new SimpleMeterRegistry());
+
+        assertTrue(encoder.matches("secret", "{plain}secret"));
+        encoder.encode("secret");
+        try {
+            encoder.matches("", "{plain}secret");
+            fail("the delegate's exception was swallowed");
+        } catch (IllegalArgumentException e) {
+            assertEquals("empty password", e.getMessage());
+        }
+
+        assertEquals(2, encoder.getCompletedCount());
+        assertEquals(1, encoder.getFailedCount());
+        assertEquals(0, encoder.getRejectedCount());
+    }
+
+    private static final class FailingOnEmptyEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(final CharSequence rawPassword) {
+            return "{plain}" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(final CharSequence rawPassword, final String encodedPassword) {
+            if (rawPassword.length() == 0) {
+                throw new IllegalArgumentException("empty password");
+            }
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+}
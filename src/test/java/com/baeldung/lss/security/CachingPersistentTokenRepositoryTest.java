@@ -0,0 +1,197 @@
+package com.baeldung.lss.security;
+
+import com.baeldung.lss.config.SchemaMigrations;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import org.springframework.security.web.authentication.rememberme.AbstractRememberMeServices;
+import org.springframework.security.web.authentication.rememberme.CookieTheftException;
+import org.springframework.security.web.authentication.rememberme.JdbcTokenRepositoryImpl;
+import org.springframework.security.web.authentication.rememberme.PersistentTokenBasedRememberMeServices;
+import org.springframework.security.web.authentication.rememberme.PersistentTokenRepository;
+
+import javax.servlet.http.Cookie;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Drives concurrent remember-me auto-logins through the plain JDBC store and the caching one over an embedded
+ * database, counting the statements each sends per auto-login.
+ */
+public class CachingPersistentTokenRepositoryTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CachingPersistentTokenRepositoryTest.class);
+
+    private static final String KEY = "key";
+    private static final int THREADS = 4;
+    private static final int USERS_PER_THREAD = 5;
+    private static final int AUTO_LOGINS = 40;
+
+    private HikariDataSource pool;
+
+    private final AtomicLong statements = new AtomicLong();
+
+    private CountingDataSource dataSource;
+
+    private final InMemoryUserDetailsManager userDetailsService = new InMemoryUserDetailsManager();
+
+    @Before
+    public void setUp() {
+        pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:hsqldb:mem:remember-me-" + UUID.randomUUID() + ";sql.syntax_mys=true");
+        pool.setUsername("sa");
+        new SchemaMigrations(pool).migrate();
+        dataSource = new CountingDataSource(pool);
+        for (int i = 0; i < THREADS * USERS_PER_THREAD; i++) {
+            userDetailsService.createUser(User.withUsername(email(i)).password("n/a").authorities("USER").build());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void whenAutoLoginsRunConcurrently_thenTheCachingStoreSendsOneStatementPerAutoLoginInsteadOfTwo() throws Exception {
+        final double jdbc = statementsPerAutoLogin(jdbcRepository());
+        final CachingPersistentTokenRepository caching = new CachingPersistentTokenRepository(jdbcRepository(), 1000);
+        final double cached = statementsPerAutoLogin(caching);
+
+        LOG.info("Statements per remember-me auto-login: {} with the jdbc store, {} with the caching store", jdbc, cached);
+        assertEquals(2.0, jdbc, 0.0);
+        assertEquals(1.0, cached, 0.0);
+        assertEquals(0, caching.getDatabaseReads());
+    }
+
+    @Test
+    public void whenTheCacheIsLost_thenOnlyTheLatestCookieLogsIn() {
+        final PersistentTokenBasedRememberMeServices node = services(new CachingPersistentTokenRepository(jdbcRepository(), 1000));
+        final Cookie first = login(node, email(0));
+        final Cookie second = autoLogin(node, first);
+
+        // a restarted node starts with an empty cache and reads what the rotation wrote
+        final PersistentTokenBasedRememberMeServices restarted = services(new CachingPersistentTokenRepository(jdbcRepository(), 1000));
+        final Cookie third = autoLogin(restarted, second);
+        assertNotNull(third);
+        try {
+            autoLogin(restarted, first);
+            fail("a rotated-away cookie logged in again");
+        } catch (CookieTheftException expected) {
+            // the first rotation reached the table before the second cookie was issued
+        }
+    }
+
+    private double statementsPerAutoLogin(final PersistentTokenRepository repository) throws Exception {
+        final PersistentTokenBasedRememberMeServices services = services(repository);
+        final List<List<Cookie>> cookies = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final List<Cookie> own = new ArrayList<>();
+            for (int u = 0; u < USERS_PER_THREAD; u++) {
+                own.add(login(services, email(t * USERS_PER_THREAD + u)));
+            }
+            cookies.add(own);
+        }
+
+        statements.set(0);
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (List<Cookie> own : cookies) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < AUTO_LOGINS; i++) {
+                        for (int u = 0; u < own.size(); u++) {
+                            own.set(u, autoLogin(services, own.get(u)));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return statements.get() / (double) (THREADS * USERS_PER_THREAD * AUTO_LOGINS);
+    }
+
+    private PersistentTokenBasedRememberMeServices services(final PersistentTokenRepository repository) {
+        return new PersistentTokenBasedRememberMeServices(KEY, userDetailsService, repository);
+    }
+
+    private JdbcTokenRepositoryImpl jdbcRepository() {
+        final JdbcTokenRepositoryImpl repository = new JdbcTokenRepositoryImpl();
+        repository.setDataSource(dataSource);
+        return repository;
+    }
+
+    private static Cookie login(final PersistentTokenBasedRememberMeServices services, final String email) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/doLogin");
+        request.setParameter(AbstractRememberMeServices.DEFAULT_PARAMETER, "true");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        final Authentication authentication = new UsernamePasswordAuthenticationToken(email, "n/a", AuthorityUtils.createAuthorityList("USER"));
+        services.loginSuccess(request, response, authentication);
+        return response.getCookie(AbstractRememberMeServices.SPRING_SECURITY_REMEMBER_ME_COOKIE_KEY);
+    }
+
+    // the rotated cookie, after checking that the presented one logged its user in
+    private static Cookie autoLogin(final PersistentTokenBasedRememberMeServices services, final Cookie cookie) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.setCookies(cookie);
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        assertNotNull(services.autoLogin(request, response));
+        return response.getCookie(AbstractRememberMeServices.SPRING_SECURITY_REMEMBER_ME_COOKIE_KEY);
+    }
+
+    private static String email(final int i) {
+        return "user" + i + "@example.com";
+    }
+
+    // one round trip per statement the stores prepare
+    private final class CountingDataSource extends DelegatingDataSource {
+
+        private CountingDataSource(final HikariDataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            final Connection connection = super.getConnection();
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                if (method.getName().startsWith("prepare") || method.getName().equals("createStatement")) {
+                    statements.incrementAndGet();
+                }
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        }
+    }
+}
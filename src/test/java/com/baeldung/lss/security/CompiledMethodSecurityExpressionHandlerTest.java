@@ -0,0 +1,155 @@
+package com.baeldung.lss.security;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.security.access.expression.ExpressionUtils;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.access.hierarchicalroles.RoleHierarchyImpl;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.RememberMeAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs the same expressions through the compiled handler and the existing {@link CustomMethodSecurityExpressionHandler}
+ * and expects the same decision for every authentication, before and after SpEL compiles them.
+ */
+public class CompiledMethodSecurityExpressionHandlerTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CompiledMethodSecurityExpressionHandlerTest.class);
+
+    // past the point where the MIXED compiler replaces the interpreted form
+    private static final int EVALUATIONS = 300;
+
+    private static final List<String> EXPRESSIONS = Arrays.asList(
+            "isAdmin()",
+            "!isAdmin()",
+            "hasAuthority('ADMIN')",
+            "hasAuthority('USER')",
+            "hasAuthority('NEVER_GRANTED')",
+            "hasAnyAuthority('USER', 'ADMIN')",
+            "hasAnyAuthority('NEVER_GRANTED', 'OTHER')",
+            "hasRole('ADMIN')",
+            "hasRole('ROLE_USER')",
+            "hasAnyRole('USER', 'AUDITOR')",
+            "hasAuthority('EXTRA_69')",
+            "isAuthenticated()",
+            "isAnonymous()",
+            "isRememberMe()",
+            "isFullyAuthenticated()",
+            "permitAll",
+            "denyAll",
+            "isAdmin() or hasAuthority('USER')",
+            "isAuthenticated() and hasAnyAuthority('ADMIN', 'ROLE_ADMIN')");
+
+    private final Object target = new Object();
+
+    private final SimpleMethodInvocation invocation = new SimpleMethodInvocation(target, Object.class.getMethods()[0]);
+
+    @Test
+    public void whenEvaluatedRepeatedly_thenCompiledHandlerDecidesLikeTheExistingOne() {
+        assertSameDecisions(new CompiledMethodSecurityExpressionHandler(getClass().getClassLoader()),
+                new CustomMethodSecurityExpressionHandler());
+    }
+
+    @Test
+    public void whenRolesAreHierarchical_thenCompiledHandlerDecidesLikeTheExistingOne() {
+        final RoleHierarchyImpl roleHierarchy = new RoleHierarchyImpl();
+        roleHierarchy.setHierarchy("ROLE_ADMIN > ROLE_USER\nADMIN > USER");
+        final CompiledMethodSecurityExpressionHandler compiled = new CompiledMethodSecurityExpressionHandler(getClass().getClassLoader());
+        compiled.setRoleHierarchy(roleHierarchy);
+        final CustomMethodSecurityExpressionHandler existing = new CustomMethodSecurityExpressionHandler();
+        existing.setRoleHierarchy(roleHierarchy);
+
+        assertSameDecisions(compiled, existing);
+    }
+
+    @Test
+    public void whenComparedOnTheSameWorkload_thenReportsTheCostOfBoth() {
+        final Authentication authentication = authenticated("USER", "ADMIN");
+        final long existing = nanosPerEvaluation(new CustomMethodSecurityExpressionHandler(), authentication);
+        final long compiled = nanosPerEvaluation(new CompiledMethodSecurityExpressionHandler(getClass().getClassLoader()), authentication);
+        LOG.info("isAdmin() or hasAnyAuthority(...): existing handler {} ns, compiled handler {} ns per evaluation", existing, compiled);
+    }
+
+    private void assertSameDecisions(final DefaultMethodSecurityExpressionHandler compiled, final DefaultMethodSecurityExpressionHandler existing) {
+        final List<Authentication> authentications = authentications();
+        for (String source : EXPRESSIONS) {
+            final Expression compiledExpression = compiled.getExpressionParser().parseExpression(source);
+            final Expression existingExpression = existing.getExpressionParser().parseExpression(source);
+            for (int i = 0; i < EVALUATIONS; i++) {
+                for (Authentication authentication : authentications) {
+                    assertEquals(source + " for " + authentication.getAuthorities() + " (evaluation " + i + ")",
+                            evaluate(existing, existingExpression, authentication),
+                            evaluate(compiled, compiledExpression, authentication));
+                }
+            }
+        }
+    }
+
+    private long nanosPerEvaluation(final DefaultMethodSecurityExpressionHandler handler, final Authentication authentication) {
+        final Expression expression = handler.getExpressionParser().parseExpression("isAdmin() or hasAnyAuthority('AUDITOR', 'USER')");
+        final int rounds = 200000;
+        for (int i = 0; i < rounds; i++) {
+            evaluate(handler, expression, authentication);
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            evaluate(handler, expression, authentication);
+        }
+        return (System.nanoTime() - start) / rounds;
+    }
+
+    private boolean evaluate(final DefaultMethodSecurityExpressionHandler handler, final Expression expression,
+                             final Authentication authentication) {
+        final EvaluationContext context = handler.createEvaluationContext(authentication, invocation);
+        return ExpressionUtils.evaluateAsBoolean(expression, context);
+    }
+
+    private static List<Authentication> authentications() {
+        final List<Authentication> authentications = new ArrayList<>();
+        authentications.add(authenticated());
+        authentications.add(authenticated("USER"));
+        authentications.add(authenticated("ADMIN"));
+        authentications.add(authenticated("USER", "ADMIN"));
+        authentications.add(authenticated("ROLE_USER"));
+        authentications.add(authenticated("ROLE_ADMIN", "AUDITOR"));
+        // more distinct names than a mask has bits: the later ones are checked by scanning
+        final String[] many = new String[70];
+        for (int i = 0; i < many.length; i++) {
+            many[i] = "EXTRA_" + i;
+        }
+        authentications.add(authenticated(many));
+        authentications.add(authenticated("USER", "EXTRA_69"));
+        // the existing isAdmin() reads the authorities of a UserDetails principal, so every token carries one
+        authentications.add(new AnonymousAuthenticationToken("key", principal("ROLE_ANONYMOUS"), authorities("ROLE_ANONYMOUS")));
+        authentications.add(new RememberMeAuthenticationToken("key", principal("USER"), authorities("USER")));
+        authentications.add(new RememberMeAuthenticationToken("key", principal("ADMIN"), authorities("ADMIN")));
+        return authentications;
+    }
+
+    private static Authentication authenticated(final String... authorities) {
+        return new UsernamePasswordAuthenticationToken(principal(authorities), "n/a", authorities(authorities));
+    }
+
+    private static User principal(final String... authorities) {
+        return new User("someone@example.com", "n/a", authorities(authorities));
+    }
+
+    private static List<GrantedAuthority> authorities(final String... authorities) {
+        return AuthorityUtils.createAuthorityList(authorities);
+    }
+}
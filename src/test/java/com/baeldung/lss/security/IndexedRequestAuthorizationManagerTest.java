@@ -0,0 +1,111 @@
+package com.baeldung.lss.security;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.access.AccessDecisionManager;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.access.SecurityConfig;
+import org.springframework.security.access.vote.AffirmativeBased;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.web.FilterInvocation;
+import org.springframework.security.web.access.expression.DefaultWebSecurityExpressionHandler;
+import org.springframework.security.web.access.expression.ExpressionBasedFilterInvocationSecurityMetadataSource;
+import org.springframework.security.web.access.expression.WebExpressionVoter;
+import org.springframework.security.web.access.intercept.FilterInvocationSecurityMetadataSource;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Builds synthetic rule tables of growing size both as the {@code authorizeRequests()} chain builds them, an ordered
+ * map of matchers to access expressions decided by a {@link WebExpressionVoter}, and as an
+ * {@link IndexedRequestAuthorizationManager}, and reports the cost of one authorization decision in each.
+ */
+public class IndexedRequestAuthorizationManagerTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndexedRequestAuthorizationManagerTest.class);
+
+    private static final int REQUESTS = 2_000;
+    private static final int ROUNDS = 10;
+
+    private final Authentication user = new UsernamePasswordAuthenticationToken("someone", "n/a", AuthorityUtils.createAuthorityList("USER"));
+
+    @Test
+    public void whenTheRuleTableGrows_thenReportsThePerRequestCostOfTheChainAndOfTheIndex() {
+        for (int rules : new int[]{10, 100, 1000}) {
+            final LinkedHashMap<RequestMatcher, Collection<ConfigAttribute>> table = new LinkedHashMap<>();
+            final IndexedRequestAuthorizationManager.Builder builder = IndexedRequestAuthorizationManager.builder();
+            for (int i = 0; i < rules; i++) {
+                final String pattern = "/area" + i + "/items/**";
+                table.put(new AntPathRequestMatcher(pattern), SecurityConfig.createList("hasAnyAuthority('USER','ADMIN')"));
+                builder.antMatchers(pattern).hasAnyAuthority("USER", "ADMIN");
+            }
+            table.put(AnyRequestMatcher.INSTANCE, SecurityConfig.createList("authenticated"));
+            builder.anyRequest().authenticated();
+
+            final FilterInvocationSecurityMetadataSource metadataSource =
+                    new ExpressionBasedFilterInvocationSecurityMetadataSource(table, new DefaultWebSecurityExpressionHandler());
+            final AccessDecisionManager accessDecisionManager = new AffirmativeBased(Collections.singletonList(new WebExpressionVoter()));
+            final IndexedRequestAuthorizationManager indexed = builder.build();
+
+            // spread over the whole table, so the chain's scan stops on average halfway down
+            final Random random = new Random(rules);
+            final FilterInvocation[] invocations = new FilterInvocation[REQUESTS];
+            final RequestAuthorizationContext[] contexts = new RequestAuthorizationContext[REQUESTS];
+            for (int i = 0; i < REQUESTS; i++) {
+                final MockHttpServletRequest request = request("/area" + random.nextInt(rules) + "/items/" + i);
+                invocations[i] = new FilterInvocation(request, new MockHttpServletResponse(), new MockFilterChain());
+                contexts[i] = new RequestAuthorizationContext(request);
+            }
+            final Supplier<Authentication> authentication = () -> user;
+
+            final Decision chain = i -> {
+                accessDecisionManager.decide(user, invocations[i], metadataSource.getAttributes(invocations[i]));
+                return true;
+            };
+            final Decision index = i -> indexed.check(authentication, contexts[i]).isGranted();
+            nanosPerRequest(chain);
+            nanosPerRequest(index);
+            final long chainNanos = nanosPerRequest(chain);
+            final long indexNanos = nanosPerRequest(index);
+
+            LOG.info("URL authorization with {} rules: {} ns per request through the chain, {} ns through the index",
+                    rules, chainNanos, indexNanos);
+        }
+    }
+
+    private static long nanosPerRequest(final Decision decision) {
+        final long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < REQUESTS; i++) {
+                assertTrue(decision.granted(i));
+            }
+        }
+        return (System.nanoTime() - start) / (ROUNDS * REQUESTS);
+    }
+
+    private static MockHttpServletRequest request(final String path) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setServletPath(path);
+        return request;
+    }
+
+    private interface Decision {
+        boolean granted(int request);
+    }
+}
@@ -0,0 +1,116 @@
+package com.baeldung.lss.security;
+
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.servlet.FilterChain;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Checks that attempts over the limit are answered before the rest of the chain, and reports what the filter itself
+ * adds to an admitted login request.
+ */
+public class LoginThrottlingFilterTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoginThrottlingFilterTest.class);
+
+    private static final int KEYS = 50_000;
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void whenAnAccountRunsOutOfAttempts_thenTheChainIsNotReached() throws Exception {
+        final LoginThrottlingFilter filter = filter();
+        final AtomicInteger reached = new AtomicInteger();
+        // successful logins: only the bucket limits them, not the lockout after failures
+        final FilterChain successfulLogin = (request, response) -> {
+            reached.incrementAndGet();
+            SecurityContextHolder.getContext().setAuthentication(authenticated(request.getParameter("username")));
+        };
+
+        MockHttpServletResponse response = null;
+        for (int i = 0; i < 6; i++) {
+            response = new MockHttpServletResponse();
+            filter.doFilter(login("someone@example.com", "10.0.0." + i), response, successfulLogin);
+        }
+
+        assertEquals(5, reached.get());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), response.getStatus());
+        assertNotNull(response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, filter.getRejectedCount());
+    }
+
+    @Test
+    public void whenLoginsAreAdmitted_thenReportsTheFiltersOwnCostPerRequest() throws Exception {
+        final MockHttpServletRequest[] requests = new MockHttpServletRequest[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            requests[i] = login("user" + i + "@example.com", "10." + (i >> 16) + "." + ((i >> 8) & 0xff) + "." + (i & 0xff));
+        }
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        // stands in for a successful authentication, which the filter reads back from the context
+        final FilterChain successfulLogin = (request, ignored) ->
+                SecurityContextHolder.getContext().setAuthentication(authenticated(request.getParameter("username")));
+
+        // each key is used twice per pass, within its bucket, so every request is admitted
+        final LoginThrottlingFilter filter = filter();
+        final int rounds = 2 * KEYS;
+        nanosPerRequest(rounds, i -> successfulLogin.doFilter(requests[i % KEYS], response));
+        final long bare = nanosPerRequest(rounds, i -> successfulLogin.doFilter(requests[i % KEYS], response));
+        final LoginThrottlingFilter measured = filter();
+        nanosPerRequest(rounds, i -> measured.doFilter(requests[i % KEYS], response, successfulLogin));
+        final long throttled = nanosPerRequest(rounds, i -> filter.doFilter(requests[i % KEYS], response, successfulLogin));
+
+        LOG.info("Login request: {} ns through the chain alone, {} ns with the throttling filter in front ({} keys per throttle)",
+                bare, throttled, filter.getTrackedAccounts());
+        assertEquals(0, filter.getRejectedCount());
+    }
+
+    private static long nanosPerRequest(final int rounds, final Request request) throws Exception {
+        final long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            request.run(i);
+        }
+        return (System.nanoTime() - start) / rounds;
+    }
+
+    private static LoginThrottlingFilter filter() {
+        return new LoginThrottlingFilter("/doLogin",
+                new LoginThrottlingFilter.Limit(5, 5, 3),
+                new LoginThrottlingFilter.Limit(30, 60, 10),
+                new LoginThrottlingFilter.Backoff(Duration.ofSeconds(1), Duration.ofMinutes(5)),
+                100_000, Duration.ofMinutes(30));
+    }
+
+    private static UsernamePasswordAuthenticationToken authenticated(final String email) {
+        return new UsernamePasswordAuthenticationToken(email, null, AuthorityUtils.NO_AUTHORITIES);
+    }
+
+    private static MockHttpServletRequest login(final String email, final String address) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/doLogin");
+        request.setServletPath("/doLogin");
+        request.setParameter("username", email);
+        request.setParameter("password", "secret");
+        request.setRemoteAddr(address);
+        return request;
+    }
+
+    private interface Request {
+        void run(int i) throws Exception;
+    }
+}
@@ -0,0 +1,106 @@
+package com.baeldung.lss.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LssCachingUserDetailsServiceTest {
+
+    private static final String EMAIL = "someone@example.com";
+
+    // an incomplete future left in the cache would make the second lookup wait forever
+    @Test(timeout = 10000)
+    public void whenTheLookupThrowsAnError_thenItIsRethrownAndNotCached() {
+        final AtomicInteger calls = new AtomicInteger();
+        final LssCachingUserDetailsService service = service(() -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new OutOfMemoryError("simulated");
+            }
+        });
+
+        try {
+            service.loadUserByUsername(EMAIL);
+            fail("the error was swallowed");
+        } catch (OutOfMemoryError e) {
+            assertEquals("simulated", e.getMessage());
+        }
+
+        assertEquals(EMAIL, service.loadUserByUsername(EMAIL).getUsername());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void whenTheLookupThrowsAnError_thenConcurrentCallersDoNotHang() throws Exception {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch fail = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        final LssCachingUserDetailsService service = service(() -> {
+            if (calls.incrementAndGet() == 1) {
+                loading.countDown();
+                await(fail);
+                throw new StackOverflowError("simulated");
+            }
+        });
+        final ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            final Future<UserDetails> first = callers.submit(() -> service.loadUserByUsername(EMAIL));
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            final Future<UserDetails> waiting = callers.submit(() -> service.loadUserByUsername(EMAIL));
+            fail.countDown();
+
+            assertSame(StackOverflowError.class, failure(first).getClass());
+            // joined the failed load, or arrived after it was dropped and loaded again
+            try {
+                assertEquals(EMAIL, waiting.get(10, TimeUnit.SECONDS).getUsername());
+            } catch (ExecutionException e) {
+                assertSame(StackOverflowError.class, e.getCause().getClass());
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    private static Throwable failure(final Future<?> future) throws Exception {
+        try {
+            future.get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        throw new AssertionError("no failure");
+    }
+
+    private static LssCachingUserDetailsService service(final Runnable beforeLoad) {
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final LssUserDetailsService loader = new LssUserDetailsService(null, meterRegistry) {
+            @Override
+            public UserDetails loadUserByUsername(final String email) {
+                beforeLoad.run();
+                return new User(email, "n/a", AuthorityUtils.createAuthorityList("USER"));
+            }
+        };
+        return new LssCachingUserDetailsService(loader, 100, 60, meterRegistry);
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
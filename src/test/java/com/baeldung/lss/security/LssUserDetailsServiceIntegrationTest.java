@@ -0,0 +1,127 @@
+package com.baeldung.lss.security;
+
+import com.baeldung.lss.persistence.UserRepository;
+import com.baeldung.lss.spring.LssApp;
+import com.baeldung.lss.web.model.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Reports what loading a user for authentication costs through the credentials projection and through the User
+ * entity, as it was loaded before: statements, entities and bytes allocated per login, and the median latency, first
+ * with cold caches and then repeated.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = LssApp.class)
+@ActiveProfiles({"hsqldb", "test"})
+public class LssUserDetailsServiceIntegrationTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LssUserDetailsServiceIntegrationTest.class);
+
+    private static final int USERS = 500;
+
+    @Autowired
+    private LssUserDetailsService userDetailsService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+
+    @Before
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        final Timestamp created = new Timestamp(System.currentTimeMillis());
+        final List<Object[]> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(new Object[]{email(i), "{noop}secret", created});
+        }
+        jdbcTemplate.batchUpdate("insert into \"User\" (email, password, created, enabled, credentialEpoch) values (?, ?, ?, true, 0)", users);
+    }
+
+    @Test
+    public void whenUsersAuthenticate_thenReportsTheCostOfTheProjectionAndOfTheEntity() {
+        final TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        final Function<String, UserDetails> entity = email -> readOnly.execute(status -> fromEntity(userRepository.findByEmail(email)));
+
+        // untimed, so that neither mode is measured while the other one's code is still being compiled
+        for (int i = 0; i < USERS; i++) {
+            userDetailsService.loadUserByUsername(email(i));
+            entity.apply(email(i));
+        }
+
+        measure("projection", userDetailsService::loadUserByUsername);
+        measure("entity", entity);
+    }
+
+    private void measure(final String mode, final Function<String, UserDetails> load) {
+        entityManagerFactory.getCache().evictAll();
+        report(mode, "cold", load);
+        report(mode, "repeated", load);
+    }
+
+    private void report(final String mode, final String pass, final Function<String, UserDetails> load) {
+        statistics.clear();
+        final long[] nanos = new long[USERS];
+        final long allocatedBefore = allocatedBytes();
+        for (int i = 0; i < USERS; i++) {
+            final long start = System.nanoTime();
+            final UserDetails user = load.apply(email(i));
+            nanos[i] = System.nanoTime() - start;
+            assertEquals(email(i), user.getUsername());
+        }
+        final long allocated = allocatedBytes() - allocatedBefore;
+        Arrays.sort(nanos);
+        LOG.info("Authentication lookup by {}, {}: {} us median, {} statements, {} entities loaded, {} KB allocated per login",
+                mode, pass, nanos[USERS / 2] / 1000.0, statistics.getPrepareStatementCount() / (double) USERS,
+                statistics.getEntityLoadCount() / (double) USERS, allocated / USERS / 1024.0);
+    }
+
+    // the lookup as it was before the projection: the whole entity, with its eager associations
+    private static UserDetails fromEntity(final User user) {
+        return new LssUserDetails(user.getId(), user.getCredentialEpoch(), user.getEmail(), user.getPassword(),
+                Boolean.TRUE.equals(user.getEnabled()), AuthorityUtils.createAuthorityList("ADMIN"));
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    private static String email(final int i) {
+        return "login" + i + "@example.com";
+    }
+}
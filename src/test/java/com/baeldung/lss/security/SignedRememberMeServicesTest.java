@@ -0,0 +1,194 @@
+package com.baeldung.lss.security;
+
+import com.baeldung.lss.config.SchemaMigrations;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.web.authentication.rememberme.AbstractRememberMeServices;
+import org.springframework.security.web.authentication.rememberme.JdbcTokenRepositoryImpl;
+import org.springframework.security.web.authentication.rememberme.PersistentTokenBasedRememberMeServices;
+
+import javax.servlet.http.Cookie;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Reports what a remember-me auto-login costs with the persistent token table and with the signed cookie, over an
+ * embedded database, and checks that a credential change revokes signed cookies.
+ */
+public class SignedRememberMeServicesTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SignedRememberMeServicesTest.class);
+
+    private static final String KEY = "key";
+    private static final int USERS = 50;
+    private static final int AUTO_LOGINS = 2_000;
+
+    private HikariDataSource pool;
+
+    private final AtomicLong statements = new AtomicLong();
+
+    private final Map<String, LssUserDetails> users = new ConcurrentHashMap<>();
+
+    // stands in for the cached user lookup both modes share
+    private final UserDetailsService userDetailsService = email -> {
+        final LssUserDetails user = users.get(email);
+        if (user == null) {
+            throw new UsernameNotFoundException(email);
+        }
+        return user;
+    };
+
+    @Before
+    public void setUp() {
+        pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:hsqldb:mem:remember-me-" + UUID.randomUUID() + ";sql.syntax_mys=true");
+        pool.setUsername("sa");
+        new SchemaMigrations(pool).migrate();
+        for (int i = 0; i < USERS; i++) {
+            users.put(email(i), user(i, 0));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void whenAutoLoggingInRepeatedly_thenReportsTheLookupCostOfBothModes() {
+        final JdbcTokenRepositoryImpl tokenRepository = new JdbcTokenRepositoryImpl();
+        tokenRepository.setDataSource(new CountingDataSource(pool));
+        final Result persistent = measure(new PersistentTokenBasedRememberMeServices(KEY, userDetailsService, tokenRepository));
+        final Result signed = measure(signed());
+
+        LOG.info("Remember-me auto-login: persistent {} us median, {} statements each; signed {} us median, {} statements each",
+                persistent.medianNanos / 1000.0, persistent.statements, signed.medianNanos / 1000.0, signed.statements);
+        assertEquals(2.0, persistent.statements, 0.0);
+        assertEquals(0.0, signed.statements, 0.0);
+    }
+
+    @Test
+    public void whenTheCredentialEpochChanges_thenEarlierSignedCookiesAreRejected() {
+        final SignedRememberMeServices services = signed();
+        final Cookie cookie = login(services, email(0));
+        assertNotNull(autoLogin(services, cookie));
+
+        users.put(email(0), user(0, 1));
+
+        assertNull(autoLogin(services, cookie));
+    }
+
+    private Result measure(final AbstractRememberMeServices services) {
+        final Cookie[] cookies = new Cookie[USERS];
+        for (int i = 0; i < USERS; i++) {
+            cookies[i] = login(services, email(i));
+        }
+        // persistent cookies rotate on every use, signed ones come back unchanged
+        for (int i = 0; i < USERS; i++) {
+            cookies[i] = next(services, cookies[i]);
+        }
+
+        statements.set(0);
+        final long[] nanos = new long[AUTO_LOGINS];
+        for (int i = 0; i < AUTO_LOGINS; i++) {
+            final int user = i % USERS;
+            final long start = System.nanoTime();
+            cookies[user] = next(services, cookies[user]);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return new Result(nanos[AUTO_LOGINS / 2], statements.get() / (double) AUTO_LOGINS);
+    }
+
+    private SignedRememberMeServices signed() {
+        return new SignedRememberMeServices(KEY, userDetailsService, "signing-key", null, null);
+    }
+
+    private static Cookie next(final AbstractRememberMeServices services, final Cookie cookie) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.setCookies(cookie);
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        assertNotNull(services.autoLogin(request, response));
+        final Cookie rotated = response.getCookie(AbstractRememberMeServices.SPRING_SECURITY_REMEMBER_ME_COOKIE_KEY);
+        return rotated == null ? cookie : rotated;
+    }
+
+    private static Object autoLogin(final AbstractRememberMeServices services, final Cookie cookie) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.setCookies(cookie);
+        return services.autoLogin(request, new MockHttpServletResponse());
+    }
+
+    private Cookie login(final AbstractRememberMeServices services, final String email) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/doLogin");
+        request.setParameter(AbstractRememberMeServices.DEFAULT_PARAMETER, "true");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        final LssUserDetails user = users.get(email);
+        services.loginSuccess(request, response, new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+        return response.getCookie(AbstractRememberMeServices.SPRING_SECURITY_REMEMBER_ME_COOKIE_KEY);
+    }
+
+    private static LssUserDetails user(final int i, final int credentialEpoch) {
+        return new LssUserDetails((long) i + 1, credentialEpoch, email(i), "n/a", true, AuthorityUtils.createAuthorityList("USER"));
+    }
+
+    private static String email(final int i) {
+        return "user" + i + "@example.com";
+    }
+
+    private static final class Result {
+
+        private final long medianNanos;
+        private final double statements;
+
+        private Result(final long medianNanos, final double statements) {
+            this.medianNanos = medianNanos;
+            this.statements = statements;
+        }
+    }
+
+    // one round trip per statement the token table receives
+    private final class CountingDataSource extends DelegatingDataSource {
+
+        private CountingDataSource(final HikariDataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            final Connection connection = super.getConnection();
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                if (method.getName().startsWith("prepare") || method.getName().equals("createStatement")) {
+                    statements.incrementAndGet();
+                }
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.baeldung.lss.security;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Repeats the same login against the plain provider and the caching one, with the production BCrypt strength, and
+ * reports the latency of both.
+ */
+public class VerifiedCredentialCacheAuthenticationProviderTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VerifiedCredentialCacheAuthenticationProviderTest.class);
+
+    private static final String EMAIL = "someone@example.com";
+    private static final String PASSWORD = "secret";
+    private static final int LOGINS = 20;
+
+    private final PasswordEncoder passwordEncoder = PasswordEncoders.delegating(10);
+
+    private final InMemoryUserDetailsManager userDetailsService = new InMemoryUserDetailsManager(
+            User.withUsername(EMAIL).password(passwordEncoder.encode(PASSWORD)).authorities("USER").build());
+
+    @Test
+    public void whenTheSameCredentialsLogInRepeatedly_thenReportsTheLatencyWithAndWithoutTheCache() {
+        final DaoAuthenticationProvider plain = new DaoAuthenticationProvider();
+        final DaoAuthenticationProvider cached = new VerifiedCredentialCacheAuthenticationProvider(new VerifiedCredentialCache(true, 30, 100));
+
+        final long plainNanos = medianLoginNanos(plain);
+        final long cachedNanos = medianLoginNanos(cached);
+
+        LOG.info("Repeat login: {} us without the verified-credential cache, {} us with it", plainNanos / 1000, cachedNanos / 1000);
+        assertTrue(cachedNanos < plainNanos);
+    }
+
+    @Test
+    public void whenAWrongPasswordFollowsACachedLogin_thenItIsStillRejected() {
+        final DaoAuthenticationProvider cached = configure(new VerifiedCredentialCacheAuthenticationProvider(new VerifiedCredentialCache(true, 30, 100)));
+        cached.authenticate(token(PASSWORD));
+        try {
+            cached.authenticate(token("not-" + PASSWORD));
+            fail("a wrong password was accepted from the cache");
+        } catch (BadCredentialsException expected) {
+            // the MAC covers the presented password
+        }
+    }
+
+    // the first login is the one that verifies; the rest are the repeats the cache is for
+    private long medianLoginNanos(final DaoAuthenticationProvider provider) {
+        configure(provider).authenticate(token(PASSWORD));
+        final long[] nanos = new long[LOGINS];
+        for (int i = 0; i < LOGINS; i++) {
+            final long start = System.nanoTime();
+            assertTrue(provider.authenticate(token(PASSWORD)).isAuthenticated());
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[LOGINS / 2];
+    }
+
+    private DaoAuthenticationProvider configure(final DaoAuthenticationProvider provider) {
+        provider.setUserDetailsService(userDetailsService);
+        provider.setPasswordEncoder(passwordEncoder);
+        return provider;
+    }
+
+    private static UsernamePasswordAuthenticationToken token(final String password) {
+        return new UsernamePasswordAuthenticationToken(EMAIL, password);
+    }
+}
@@ -0,0 +1,151 @@
+package com.baeldung.lss.service;
+
+import com.baeldung.lss.persistence.MailOutboxRepository;
+import com.baeldung.lss.persistence.UserRepository;
+import com.baeldung.lss.persistence.VerificationTokenRepository;
+import com.baeldung.lss.security.Tokens;
+import com.baeldung.lss.spring.LssApp;
+import com.baeldung.lss.validation.EmailExistsException;
+import com.baeldung.lss.web.model.User;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = LssApp.class)
+@ActiveProfiles({"hsqldb", "test"})
+public class ConcurrentRegistrationIntegrationTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConcurrentRegistrationIntegrationTest.class);
+
+    private static final int THREADS = 8;
+    private static final int SIGN_UPS_PER_THREAD = 4;
+
+    @Autowired
+    private IUserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VerificationTokenRepository verificationTokenRepository;
+
+    @Autowired
+    private MailOutboxRepository mailOutboxRepository;
+
+    @Test
+    public void whenSameEmailRegisteredConcurrently_thenExactlyOneAccountAndTheRestGetEmailExists() throws Exception {
+        final long tokensBefore = verificationTokenRepository.count();
+        final long mailsBefore = mailOutboxRepository.count();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            // spelling variants of one address: normalization must put them all on the same index entry
+            final String email = (i % 2 == 0 ? "Race@Example.com" : " race@example.COM ");
+            // EmailExistsException is a Throwable, which a Callable cannot throw
+            final Callable<Boolean> registration = () -> {
+                start.await();
+                try {
+                    userService.registerNewUser(newUser(email), Tokens.newToken(), confirmation(email));
+                    return true;
+                } catch (EmailExistsException e) {
+                    return false;
+                }
+            };
+            results.add(executor.submit(registration));
+        }
+        start.countDown();
+
+        int registered = 0;
+        int rejected = 0;
+        for (Future<Boolean> result : results) {
+            // any other failure, e.g. a raw constraint violation, surfaces here as an ExecutionException
+            if (result.get(30, TimeUnit.SECONDS)) {
+                registered++;
+            } else {
+                rejected++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(1, registered);
+        assertEquals(THREADS - 1, rejected);
+        assertEquals(1, userRepository.findExistingEmails(Collections.singletonList("race@example.com")).size());
+        // the losers' tokens and mail were rolled back with their user rows
+        assertEquals(tokensBefore + 1, verificationTokenRepository.count());
+        assertEquals(mailsBefore + 1, mailOutboxRepository.count());
+    }
+
+    @Test
+    public void whenDistinctEmailsRegisterConcurrently_thenReportsSignUpsPerSecond() throws Exception {
+        final long usersBefore = userRepository.count();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final List<Future<Void>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            final Callable<Void> signUps = () -> {
+                start.await();
+                for (int i = 0; i < SIGN_UPS_PER_THREAD; i++) {
+                    final String email = "signup-" + thread + "-" + i + "@example.com";
+                    try {
+                        userService.registerNewUser(newUser(email), Tokens.newToken(), confirmation(email));
+                    } catch (EmailExistsException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return null;
+            };
+            results.add(executor.submit(signUps));
+        }
+        final long began = System.nanoTime();
+        start.countDown();
+        for (Future<Void> result : results) {
+            result.get(5, TimeUnit.MINUTES);
+        }
+        final long elapsed = System.nanoTime() - began;
+        executor.shutdown();
+
+        final int signUps = THREADS * SIGN_UPS_PER_THREAD;
+        LOG.info("{} sign-ups from {} threads in {} ms: {} sign-ups/sec", signUps, THREADS,
+                TimeUnit.NANOSECONDS.toMillis(elapsed), String.format("%.1f", signUps * 1e9 / elapsed));
+        assertEquals(usersBefore + signUps, userRepository.count());
+    }
+
+    private static User newUser(final String email) {
+        final User user = new User();
+        user.setEmail(email);
+        user.setPassword("pass");
+        user.setPasswordConfirmation("pass");
+        user.setEnabled(false);
+        return user;
+    }
+
+    private static SimpleMailMessage confirmation(final String email) {
+        final SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(email);
+        message.setFrom("support@example.com");
+        message.setSubject("Registration Confirmation");
+        message.setText("confirm");
+        return message;
+    }
+}
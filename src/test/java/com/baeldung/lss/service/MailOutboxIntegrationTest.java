@@ -0,0 +1,171 @@
+package com.baeldung.lss.service;
+
+import com.baeldung.lss.persistence.MailOutboxRepository;
+import com.baeldung.lss.spring.LssApp;
+import com.baeldung.lss.web.model.MailOutboxMessage;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.mail.internet.MimeMessage;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = LssApp.class)
+@ActiveProfiles({"hsqldb", "test"})
+@TestPropertySource(properties = {
+        "lss.mail.outbox.max-attempts=3",
+        "lss.mail.outbox.backoff-base-ms=30000",
+        "lss.mail.outbox.backoff-max-ms=3600000",
+        "lss.maintenance.dead-mail-retention-days=14"})
+public class MailOutboxIntegrationTest {
+
+    private static final long BACKOFF_BASE_MILLIS = 30000;
+
+    @Autowired
+    private MailOutbox mailOutbox;
+
+    @Autowired
+    private MailOutboxRepository outboxRepository;
+
+    @Autowired
+    private AccountMaintenanceService accountMaintenanceService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final GreenMail smtp = new GreenMail(ServerSetupTest.SMTP);
+
+    @Before
+    public void setUp() {
+        outboxRepository.deleteAll();
+    }
+
+    @After
+    public void tearDown() {
+        smtp.stop();
+    }
+
+    @Test
+    public void givenSmtpServerUp_whenDispatched_thenBatchIsDeliveredAndRowsDeleted() throws Exception {
+        smtp.start();
+        enqueue("first@example.com", "second@example.com", "third@example.com");
+
+        mailOutbox.dispatch();
+
+        final MimeMessage[] received = smtp.getReceivedMessages();
+        assertEquals(3, received.length);
+        assertEquals("Registration Confirmation", received[0].getSubject());
+        assertEquals(0, outboxRepository.count());
+    }
+
+    @Test
+    public void givenSmtpServerDown_whenDispatched_thenRetriedWithExponentialBackoffUntilDelivered() {
+        enqueue("retry@example.com");
+
+        long before = System.currentTimeMillis();
+        mailOutbox.dispatch();
+        MailOutboxMessage message = single();
+        assertEquals(MailOutboxMessage.Status.PENDING, message.getStatus());
+        assertEquals(1, message.getAttempts());
+        assertTrue(message.getLastError() != null);
+        assertDueAfter(message, before, BACKOFF_BASE_MILLIS);
+
+        // not due yet: the next poll leaves it alone
+        mailOutbox.dispatch();
+        assertEquals(1, single().getAttempts());
+
+        makeDue();
+        before = System.currentTimeMillis();
+        mailOutbox.dispatch();
+        message = single();
+        assertEquals(2, message.getAttempts());
+        assertDueAfter(message, before, 2 * BACKOFF_BASE_MILLIS);
+
+        smtp.start();
+        makeDue();
+        mailOutbox.dispatch();
+        assertEquals(1, smtp.getReceivedMessages().length);
+        assertEquals(0, outboxRepository.count());
+    }
+
+    @Test
+    public void givenSmtpServerDown_whenAttemptsRunOut_thenMessageIsDeadUntilPurged() {
+        enqueue("dead@example.com");
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            makeDue();
+            mailOutbox.dispatch();
+        }
+        final MailOutboxMessage message = single();
+        assertEquals(MailOutboxMessage.Status.DEAD, message.getStatus());
+        assertEquals(3, message.getAttempts());
+
+        // dead messages are never claimed again, even once the server is back
+        smtp.start();
+        makeDue();
+        mailOutbox.dispatch();
+        assertEquals(0, smtp.getReceivedMessages().length);
+        assertEquals(MailOutboxMessage.Status.DEAD, single().getStatus());
+
+        // kept for inspection within the retention, purged after it
+        accountMaintenanceService.purge();
+        assertEquals(1, outboxRepository.count());
+        final MailOutboxMessage dead = single();
+        dead.setNextAttemptAt(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(15)));
+        outboxRepository.save(dead);
+        accountMaintenanceService.purge();
+        assertEquals(0, outboxRepository.count());
+    }
+
+    private void enqueue(final String... recipients) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (String recipient : recipients) {
+                final SimpleMailMessage message = new SimpleMailMessage();
+                message.setTo(recipient);
+                message.setFrom("support@example.com");
+                message.setSubject("Registration Confirmation");
+                message.setText("Please open the following URL to verify your account");
+                mailOutbox.enqueue(message);
+            }
+        });
+    }
+
+    private MailOutboxMessage single() {
+        final List<MailOutboxMessage> messages = outboxRepository.findAll();
+        assertEquals(1, messages.size());
+        return messages.get(0);
+    }
+
+    // what the backoff would reach after waiting
+    private void makeDue() {
+        final List<MailOutboxMessage> messages = outboxRepository.findAll();
+        messages.forEach(message -> {
+            if (message.getStatus() == MailOutboxMessage.Status.PENDING) {
+                message.setNextAttemptAt(new Date(System.currentTimeMillis() - 1000));
+            }
+        });
+        outboxRepository.saveAll(messages);
+    }
+
+    private static void assertDueAfter(final MailOutboxMessage message, final long failedAt, final long delayMillis) {
+        final long due = message.getNextAttemptAt().getTime();
+        assertTrue("next attempt at " + due, due >= failedAt + delayMillis && due <= System.currentTimeMillis() + delayMillis);
+    }
+}
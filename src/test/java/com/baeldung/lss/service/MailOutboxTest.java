@@ -0,0 +1,61 @@
+package com.baeldung.lss.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class MailOutboxTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MailOutboxTest.class);
+
+    private static final String[] OUTCOMES = {"success", "partial", "failure"};
+
+    @Test
+    public void whenCreated_thenTheSendTimersAreRegisteredForEveryOutcome() {
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        // nothing is sent, so no repository, sender or transactions are needed
+        new MailOutbox(null, null, null, new DriverManagerDataSource("jdbc:hsqldb:mem:unused"), meterRegistry);
+
+        for (String outcome : OUTCOMES) {
+            assertEquals(0, meterRegistry.get("lss.mail.send").tag("outcome", outcome).timer().count());
+        }
+    }
+
+    @Test
+    public void whenComparedOnTheSameWorkload_thenReportsTheCostOfBoth() {
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final Timer[] registered = new Timer[OUTCOMES.length];
+        for (int i = 0; i < OUTCOMES.length; i++) {
+            registered[i] = Timer.builder("lss.mail.send").tag("outcome", OUTCOMES[i]).register(meterRegistry);
+        }
+        final long perBatch = nanosPerRecording(i -> Timer.builder("lss.mail.send").tag("outcome", OUTCOMES[i % OUTCOMES.length])
+                .register(meterRegistry).record(i, TimeUnit.NANOSECONDS));
+        final long upFront = nanosPerRecording(i -> registered[i % OUTCOMES.length].record(i, TimeUnit.NANOSECONDS));
+        LOG.info("lss.mail.send: timer looked up per batch {} ns, registered up front {} ns per recording", perBatch, upFront);
+    }
+
+    private long nanosPerRecording(final Recording recording) {
+        final int rounds = 200000;
+        for (int i = 0; i < rounds; i++) {
+            recording.record(i);
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            recording.record(i);
+        }
+        return (System.nanoTime() - start) / rounds;
+    }
+
+    private interface Recording {
+        void record(int i);
+    }
+}
@@ -0,0 +1,124 @@
+package com.baeldung.lss.service;
+
+import com.baeldung.lss.persistence.UserRepository;
+import com.baeldung.lss.spring.LssApp;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.Writer;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Exports a large table to a writer that discards its input and reports the time taken and how far the heap grew
+ * above its level before the export. The embedded database builds each result in memory, so the heap figure here is
+ * an upper bound of what a server-side cursor costs.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = LssApp.class)
+@ActiveProfiles({"hsqldb", "test"})
+public class UserExportServiceIntegrationTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserExportServiceIntegrationTest.class);
+
+    private static final int ROWS = 200_000;
+    private static final int BATCH = 5_000;
+
+    @Autowired
+    private UserExportService userExportService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void whenExportingALargeTable_thenReportsTheTimeAndTheHeapGrowth() throws Exception {
+        seed();
+        final long accounts = userRepository.count();
+
+        final SamplingWriter csv = new SamplingWriter();
+        final long csvRows = timed("CSV", () -> userExportService.export(UserExportService.Format.CSV, csv), csv);
+        final SamplingWriter ndjson = new SamplingWriter();
+        final long ndjsonRows = timed("NDJSON", () -> userExportService.export(UserExportService.Format.NDJSON, ndjson), ndjson);
+
+        assertEquals(accounts, csvRows);
+        assertEquals(accounts, ndjsonRows);
+    }
+
+    private long timed(final String format, final Export export, final SamplingWriter writer) throws Exception {
+        writer.baseline = usedHeap(true);
+        final long start = System.nanoTime();
+        final long rows = export.run();
+        final long millis = (System.nanoTime() - start) / 1_000_000;
+        LOG.info("{} export of {} rows: {} ms, {} rows/sec, {} MB written, heap grew by at most {} MB", format, rows, millis,
+                rows * 1000 / Math.max(1, millis), writer.chars >> 20, (writer.peak - writer.baseline) >> 20);
+        return rows;
+    }
+
+    private void seed() {
+        final Timestamp created = new Timestamp(System.currentTimeMillis());
+        for (int from = 0; from < ROWS; from += BATCH) {
+            final List<Object[]> batch = new ArrayList<>(BATCH);
+            for (int i = from; i < from + BATCH; i++) {
+                batch.add(new Object[]{"export" + i + "@example.com", "{noop}secret", created, i % 2 == 0});
+            }
+            jdbcTemplate.batchUpdate("insert into \"User\" (email, password, created, enabled, credentialEpoch) values (?, ?, ?, ?, 0)", batch);
+        }
+    }
+
+    private static long usedHeap(final boolean collect) {
+        final Runtime runtime = Runtime.getRuntime();
+        if (collect) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private interface Export {
+        long run() throws Exception;
+    }
+
+    // keeps nothing; samples the heap whenever the export flushes
+    private static final class SamplingWriter extends Writer {
+
+        private long chars;
+        private long baseline;
+        private long peak;
+
+        @Override
+        public void write(final char[] buffer, final int offset, final int length) {
+            chars += length;
+        }
+
+        @Override
+        public void write(final String value) {
+            chars += value.length();
+        }
+
+        @Override
+        public void write(final int c) {
+            chars++;
+        }
+
+        @Override
+        public void flush() {
+            peak = Math.max(peak, usedHeap(false));
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
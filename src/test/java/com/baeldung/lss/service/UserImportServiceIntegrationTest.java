@@ -0,0 +1,101 @@
+package com.baeldung.lss.service;
+
+import com.baeldung.lss.persistence.MailOutboxRepository;
+import com.baeldung.lss.persistence.UserRepository;
+import com.baeldung.lss.persistence.VerificationTokenRepository;
+import com.baeldung.lss.spring.LssApp;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Imports enough rows to span several chunks and reports the rows/sec reached on the embedded database. BCrypt runs
+ * at its minimum strength here so the figure is dominated by the batching; the floor is set for a single slow core.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = LssApp.class)
+@ActiveProfiles({"hsqldb", "test"})
+@TestPropertySource(properties = {
+        "lss.password.bcrypt.strength=4",
+        "lss.import.chunk-size=500"})
+public class UserImportServiceIntegrationTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserImportServiceIntegrationTest.class);
+
+    private static final int ROWS = 3000;
+    private static final double MIN_ROWS_PER_SECOND = 100;
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private AccountMailService accountMailService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VerificationTokenRepository verificationTokenRepository;
+
+    @Autowired
+    private MailOutboxRepository mailOutboxRepository;
+
+    @Test
+    public void whenImportingThousandsOfRows_thenAllAreWrittenAtBatchThroughput() throws Exception {
+        final long usersBefore = userRepository.count();
+        final long tokensBefore = verificationTokenRepository.count();
+        final long mailsBefore = mailOutboxRepository.count();
+
+        final UserImportResult result = userImportService.importUsers(new StringReader(csv("bulk", ROWS)), true,
+                (email, token) -> accountMailService.registrationConfirmation("http://localhost:8080", email, token));
+
+        LOG.info("Imported {} rows in {} ms: {} rows/sec", result.getImported(), result.getMillis(), Math.round(result.getRowsPerSecond()));
+        assertEquals(ROWS, result.getImported());
+        assertEquals(0, result.getFailed());
+        assertEquals(usersBefore + ROWS, userRepository.count());
+        assertEquals(tokensBefore + ROWS, verificationTokenRepository.count());
+        assertEquals(mailsBefore + ROWS, mailOutboxRepository.count());
+        assertTrue("only " + Math.round(result.getRowsPerSecond()) + " rows/sec", result.getRowsPerSecond() >= MIN_ROWS_PER_SECOND);
+    }
+
+    @Test
+    public void whenRowsAreBadOrDuplicated_thenTheyAreReportedAndTheRestIsImported() throws Exception {
+        userImportService.importUsers(new StringReader(csv("taken", 1)), false, null);
+
+        final String input = "email,password\n"
+                + "taken0@example.com,secret\n"
+                + "no-at-sign,secret\n"
+                + "fresh0@example.com,\n"
+                + "fresh1@example.com,secret\n"
+                + "FRESH1@example.com,secret\n"
+                + "fresh2@example.com,secret\n";
+        final UserImportResult result = userImportService.importUsers(new StringReader(input), false, null);
+
+        assertEquals(2, result.getImported());
+        assertEquals(4, result.getFailed());
+        assertEquals(Arrays.asList(2L, 3L, 4L, 6L), result.getFailures().stream().map(UserImportResult.Failure::getLine).sorted()
+                .collect(Collectors.toList()));
+        assertEquals(2, userRepository.findExistingEmails(Arrays.asList("fresh1@example.com", "fresh2@example.com")).size());
+    }
+
+    private static String csv(final String prefix, final int rows) {
+        final StringBuilder csv = new StringBuilder("email,password\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append(prefix).append(i).append("@example.com,secret").append(i).append('\n');
+        }
+        return csv.toString();
+    }
+}
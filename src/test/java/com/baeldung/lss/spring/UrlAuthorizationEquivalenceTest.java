@@ -0,0 +1,198 @@
+package com.baeldung.lss.spring;
+
+import com.baeldung.lss.security.IndexedRequestAuthorizationManager;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.RememberMeAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.web.FilterInvocation;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.FilterSecurityInterceptor;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.servlet.Filter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * The indexed URL authorization must pick the same rule as the {@code authorizeRequests()} chain it replaces. The real
+ * rules are checked against the chain of the running application (the default mode); a synthetic table with
+ * method-specific and wildcard-rooted patterns is checked against a plain first-match scan, which is what the chain
+ * does.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = LssApp.class)
+@ActiveProfiles({"hsqldb", "test"})
+public class UrlAuthorizationEquivalenceTest {
+
+    private static final List<String> METHODS = Arrays.asList("GET", "POST", "PUT", "DELETE", "HEAD");
+
+    private static final List<String> URLS = Arrays.asList(
+            "/", "/login", "/login/", "/login?error", "/login?logout", "/login?error=1", "/loginx",
+            "/doLogin", "/doLogin/", "/doLogin?x=1", "/logout", "/logout/", "/logout?x=1",
+            "/user", "/user/", "/user/1", "/user/1/",
+            "/user/delete", "/user/delete/", "/user/delete/7", "/user/delete/7/", "/user/delete/7/x",
+            "/user/modify/7", "/user/modify/7/", "/user/modify",
+            "/user/form", "/user/form/", "/user/someform", "/user/x/form", "/userform", "/user/formx",
+            "/secured", "/secured/", "/secured/x", "/securedx",
+            "/signup", "/signup/", "/signupx", "/user/register", "/user/register/",
+            "/registrationConfirm", "/registrationConfirm?token=abc", "/registrationConfirmation", "/registrationConfirm/x",
+            "/forgotPassword", "/forgotPasswordPage", "/user/resetPassword", "/user/changePassword?id=1&token=t",
+            "/user/savePassword", "/user/savePassword/", "/user/import", "/user/export", "/user/hashes",
+            "/js/app.js", "/favicon.ico", "/USER/DELETE/7");
+
+    @Autowired
+    private List<SecurityFilterChain> filterChains;
+
+    private FilterSecurityInterceptor chain;
+
+    private IndexedRequestAuthorizationManager indexed;
+
+    @Before
+    public void setUp() {
+        for (SecurityFilterChain filterChain : filterChains) {
+            for (Filter filter : filterChain.getFilters()) {
+                if (filter instanceof FilterSecurityInterceptor) {
+                    chain = (FilterSecurityInterceptor) filter;
+                }
+            }
+        }
+        assertNotNull("the default mode is the authorizeRequests() chain", chain);
+        indexed = LssSecurityConfig.urlAuthorization();
+    }
+
+    @Test
+    public void whenRealRulesAreIndexed_thenFirstMatchPicksTheRuleTheChainApplies() {
+        for (String method : METHODS) {
+            for (String url : URLS) {
+                final MockHttpServletRequest request = request(method, url);
+                final Collection<ConfigAttribute> attributes = chain.obtainSecurityMetadataSource().getAttributes(invocation(request));
+                final int rule = indexed.firstMatch(request);
+                assertEquals(method + " " + url, String.valueOf(attributes), rule < 0 ? "null" : "[" + indexed.getAccess(rule) + "]");
+            }
+        }
+    }
+
+    @Test
+    public void whenRealRulesAreIndexed_thenEveryoneGetsTheDecisionTheChainGives() {
+        final List<Authentication> authentications = Arrays.asList(
+                new AnonymousAuthenticationToken("key", "anonymousUser", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")),
+                authenticated(),
+                authenticated("USER"),
+                authenticated("ADMIN"),
+                authenticated("USER", "ADMIN"),
+                new RememberMeAuthenticationToken("key", "someone", AuthorityUtils.createAuthorityList("USER")));
+        for (String method : METHODS) {
+            for (String url : URLS) {
+                for (Authentication authentication : authentications) {
+                    final MockHttpServletRequest request = request(method, url);
+                    assertEquals(method + " " + url + " as " + authentication.getAuthorities(),
+                            chainDecision(authentication, request), indexedDecision(authentication, request));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void whenRulesAreMethodSpecificOrRootedInWildcards_thenFirstMatchIsTheFirstRuleInTableOrder() {
+        final String[][] table = {
+                {"POST", "/api/items/**"},
+                {null, "/**/*.css"},
+                {"GET", "/api/items/*"},
+                {null, "/*/admin/**"},
+                {"DELETE", "/api/**"},
+                {null, "/api/items"},
+                {null, "/static/**"},
+                {"GET", "/**/public/**"},
+                {null, "/{tenant}/reports/*"},
+                {null, "/exact"},
+                {"PUT", "/**"},
+        };
+        final IndexedRequestAuthorizationManager.Builder builder = IndexedRequestAuthorizationManager.builder();
+        final List<AntPathRequestMatcher> scan = new ArrayList<>();
+        for (String[] rule : table) {
+            final HttpMethod method = rule[0] == null ? null : HttpMethod.valueOf(rule[0]);
+            builder.antMatchers(method, rule[1]).permitAll();
+            scan.add(new AntPathRequestMatcher(rule[1], rule[0]));
+        }
+        final IndexedRequestAuthorizationManager manager = builder.build();
+
+        final List<String> urls = Arrays.asList("/", "/api", "/api/", "/api/items", "/api/items/", "/api/items/3",
+                "/api/items/3/parts", "/api/other", "/site.css", "/api/items/site.css", "/x/admin", "/x/admin/",
+                "/x/admin/y", "/api/admin/y", "/static", "/static/", "/static/a/b.js", "/a/public/b", "/public",
+                "/acme/reports/q1", "/acme/reports/", "/exact", "/exact/", "/exact?x=1", "/exactly", "/api//items/3");
+        for (String method : METHODS) {
+            for (String url : urls) {
+                final MockHttpServletRequest request = request(method, url);
+                int expected = -1;
+                for (int i = 0; i < scan.size() && expected < 0; i++) {
+                    if (scan.get(i).matches(request)) {
+                        expected = i;
+                    }
+                }
+                assertEquals(method + " " + url, expected, manager.firstMatch(request));
+            }
+        }
+    }
+
+    private boolean chainDecision(final Authentication authentication, final MockHttpServletRequest request) {
+        final FilterInvocation invocation = invocation(request);
+        final Collection<ConfigAttribute> attributes = chain.obtainSecurityMetadataSource().getAttributes(invocation);
+        if (attributes == null) {
+            return true;
+        }
+        try {
+            chain.getAccessDecisionManager().decide(authentication, invocation, attributes);
+            return true;
+        } catch (AccessDeniedException e) {
+            return false;
+        }
+    }
+
+    // no rule is an abstain, which the authorization filter lets through like the chain does
+    private boolean indexedDecision(final Authentication authentication, final MockHttpServletRequest request) {
+        final AuthorizationDecision decision = indexed.check(() -> authentication, new RequestAuthorizationContext(request));
+        return decision == null || decision.isGranted();
+    }
+
+    private static Authentication authenticated(final String... authorities) {
+        return new UsernamePasswordAuthenticationToken("someone", "n/a", AuthorityUtils.createAuthorityList(authorities));
+    }
+
+    private static FilterInvocation invocation(final MockHttpServletRequest request) {
+        return new FilterInvocation(request, new MockHttpServletResponse(), new MockFilterChain());
+    }
+
+    // the servlet path is what the ant matchers see, the URI and query string what the login page matchers see
+    private static MockHttpServletRequest request(final String method, final String url) {
+        final int query = url.indexOf('?');
+        final String path = query < 0 ? url : url.substring(0, query);
+        final MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        if (query >= 0) {
+            request.setQueryString(url.substring(query + 1));
+        }
+        return request;
+    }
+}
@@ -0,0 +1,114 @@
+package com.baeldung.lss.web;
+
+import com.baeldung.lss.spring.LssApp;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.web.servlet.resource.ResourceUrlProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = LssApp.class)
+@AutoConfigureMockMvc
+@ActiveProfiles({"hsqldb", "test"})
+public class StaticResourceCachingIntegrationTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StaticResourceCachingIntegrationTest.class);
+
+    private static final String PLAIN = "/js/jquery.validate.js";
+    private static final String[] ASSETS = {"/js/jquery-1.7.2.js", PLAIN};
+    private static final int REQUESTS = 500;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    @Qualifier("mvcResourceUrlProvider")
+    private ResourceUrlProvider resourceUrlProvider;
+
+    @Test
+    public void whenRequestedUnderItsContentHash_thenCachedForAYear() throws Exception {
+        final String versioned = resourceUrlProvider.getForLookupPath(PLAIN);
+        assertNotEquals(PLAIN, versioned);
+
+        mvc.perform(get(versioned))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public"));
+    }
+
+    @Test
+    public void whenRequestedUnderItsPlainName_thenRevalidatedAgainstLastModified() throws Exception {
+        mvc.perform(get(PLAIN))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CACHE_CONTROL))
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED));
+        mvc.perform(get("/favicon.ico"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CACHE_CONTROL));
+    }
+
+    @Test
+    public void whenRequestedUnderAStaleHash_thenNotCached() throws Exception {
+        final String stale = "/js/jquery.validate-0123456789abcdef0123456789abcdef.js";
+        assertTrue(!stale.equals(resourceUrlProvider.getForLookupPath(PLAIN)));
+
+        mvc.perform(get(stale))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist(HttpHeaders.CACHE_CONTROL));
+    }
+
+    @Test
+    public void whenServedPlainOrHashedAndGzipped_thenReportsTheBytesAndRequestsPerSecond() throws Exception {
+        Assume.assumeTrue("no gzip binary at build time", new ClassPathResource("static" + PLAIN + ".gz").exists());
+        for (String asset : ASSETS) {
+            final RequestBuilder plain = get(asset);
+            final RequestBuilder hashed = get(resourceUrlProvider.getForLookupPath(asset)).header(HttpHeaders.ACCEPT_ENCODING, "gzip");
+
+            final MvcResult plainResult = mvc.perform(plain).andExpect(status().isOk()).andReturn();
+            final MvcResult hashedResult = mvc.perform(hashed).andExpect(status().isOk()).andReturn();
+            assertEquals("gzip", hashedResult.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING));
+
+            // the hashed URL is cached for a year, so a repeat view asks again only for the plain name
+            final RequestBuilder revalidation = get(asset)
+                    .header(HttpHeaders.IF_MODIFIED_SINCE, plainResult.getResponse().getHeader(HttpHeaders.LAST_MODIFIED));
+            mvc.perform(revalidation).andExpect(status().isNotModified());
+
+            LOG.info("{}: {} bytes plain at {} requests/sec, {} bytes hashed and gzipped at {} requests/sec, "
+                            + "a repeat view costs a 304 revalidation ({} requests/sec) plain and no request hashed",
+                    asset, plainResult.getResponse().getContentAsByteArray().length, requestsPerSecond(plain),
+                    hashedResult.getResponse().getContentAsByteArray().length, requestsPerSecond(hashed),
+                    requestsPerSecond(revalidation));
+        }
+    }
+
+    private long requestsPerSecond(final RequestBuilder request) throws Exception {
+        for (int i = 0; i < REQUESTS / 5; i++) {
+            mvc.perform(request);
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            mvc.perform(request);
+        }
+        return REQUESTS * 1_000_000_000L / (System.nanoTime() - start);
+    }
+}
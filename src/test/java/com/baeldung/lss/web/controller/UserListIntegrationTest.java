@@ -0,0 +1,105 @@
+package com.baeldung.lss.web.controller;
+
+import com.baeldung.lss.persistence.UserRepository;
+import com.baeldung.lss.spring.LssApp;
+import com.baeldung.lss.web.model.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = LssApp.class)
+@AutoConfigureMockMvc
+@ActiveProfiles({"hsqldb", "test"})
+public class UserListIntegrationTest {
+
+    private static final int USERS = 300;
+    private static final String HASH = "$2a$04$kqRvgmJBlWZQQ2c9NT9IH.ZhxFY07Y2xE73vmLHxBq2hNTvGvUc5m";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @Before
+    public void setUp() {
+        if (userRepository.findExistingEmails(Collections.singletonList(email(0))).isEmpty()) {
+            final List<User> users = new ArrayList<>();
+            for (int i = 0; i < USERS; i++) {
+                final User user = new User();
+                user.setEmail(email(i));
+                user.setPassword(HASH);
+                user.setEnabled(true);
+                users.add(user);
+            }
+            userRepository.saveAll(users);
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void whenPagingDeep_thenEveryPageCostsThePageQueryAndTheCount() throws Exception {
+        final long deepId = userRepository.findSummariesByEmailIn(Collections.singletonList(email(250))).get(0).getId();
+
+        assertStatements(2, list());
+        assertStatements(2, list().param("after", String.valueOf(deepId)));
+        assertStatements(2, list().param("before", String.valueOf(deepId)));
+        assertStatements(2, list().param("sort", "email").param("after", email(250)));
+        assertStatements(2, list().param("sort", "email").param("dir", "desc").param("after", email(250)));
+    }
+
+    @Test
+    public void whenPagingForward_thenPageStartsAfterTheCursor() throws Exception {
+        mvc.perform(list().param("sort", "email").param("after", email(250)).param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("nextCursor", email(260)))
+                .andExpect(model().attribute("previousCursor", email(251)));
+    }
+
+    @Test
+    public void whenCursorIsMalformed_thenBadRequest() throws Exception {
+        mvc.perform(list().param("after", "not-a-number")).andExpect(status().isBadRequest());
+        mvc.perform(list().param("before", "12abc")).andExpect(status().isBadRequest());
+    }
+
+    private MockHttpServletRequestBuilder list() {
+        return get("/user").with(user("admin@example.com").authorities(new SimpleGrantedAuthority("ADMIN")));
+    }
+
+    private void assertStatements(final long expected, final MockHttpServletRequestBuilder request) throws Exception {
+        statistics.clear();
+        mvc.perform(request).andExpect(status().isOk());
+        assertEquals(expected, statistics.getPrepareStatementCount());
+    }
+
+    private static String email(final int i) {
+        return String.format("list-user-%03d@example.com", i);
+    }
+}
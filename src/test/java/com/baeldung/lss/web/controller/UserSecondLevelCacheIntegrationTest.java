@@ -0,0 +1,198 @@
+package com.baeldung.lss.web.controller;
+
+import com.baeldung.lss.persistence.UserRepository;
+import com.baeldung.lss.service.IUserService;
+import com.baeldung.lss.spring.LssApp;
+import com.baeldung.lss.web.model.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Counts the SQL statements Hibernate prepares: once a user has been loaded, views, edits and logins are served
+ * from the second-level and natural-id caches.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = LssApp.class)
+@AutoConfigureMockMvc
+@ActiveProfiles({"hsqldb", "test"})
+public class UserSecondLevelCacheIntegrationTest {
+
+    private static final String EMAIL = "cached-user@example.com";
+    private static final String PASSWORD = "secret";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private IUserService userService;
+
+    @Autowired
+    @Qualifier("hashingPasswordEncoder")
+    private PasswordEncoder hashingPasswordEncoder;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource dataSource;
+
+    private Statistics statistics;
+
+    private long id;
+
+    @Before
+    public void setUp() {
+        if (userRepository.findExistingEmails(Collections.singletonList(EMAIL)).isEmpty()) {
+            userRepository.save(newUser(EMAIL));
+        }
+        id = userRepository.findSummariesByEmailIn(Collections.singletonList(EMAIL)).get(0).getId();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void whenUserViewedRepeatedly_thenNoStatements() throws Exception {
+        mvc.perform(asAdmin("/user/" + id)).andExpect(status().isOk());
+
+        statistics.clear();
+        for (int i = 0; i < 3; i++) {
+            mvc.perform(asAdmin("/user/" + id)).andExpect(status().isOk());
+            mvc.perform(asAdmin("/user/modify/" + id)).andExpect(status().isOk());
+        }
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(6, statistics.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    public void whenUserLogsInRepeatedly_thenNoStatements() throws Exception {
+        mvc.perform(login()).andExpect(redirectedUrl("/"));
+
+        statistics.clear();
+        for (int i = 0; i < 3; i++) {
+            mvc.perform(login()).andExpect(redirectedUrl("/"));
+        }
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void whenALoginRehashesAnOutdatedPassword_thenOtherUsersStayCached() throws Exception {
+        final User legacy = new User();
+        legacy.setEmail("legacy-hash-" + EMAIL);
+        // un-prefixed, as written before the hash format carried its algorithm
+        legacy.setPassword(new BCryptPasswordEncoder(4).encode(PASSWORD));
+        legacy.setEnabled(true);
+        userRepository.save(legacy);
+        mvc.perform(asAdmin("/user/" + id)).andExpect(status().isOk());
+
+        mvc.perform(post("/doLogin").param("username", legacy.getEmail()).param("password", PASSWORD)).andExpect(redirectedUrl("/"));
+
+        assertTrue(userRepository.findByEmail(legacy.getEmail()).getPassword().startsWith("{bcrypt}"));
+        statistics.clear();
+        mvc.perform(asAdmin("/user/" + id)).andExpect(status().isOk());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void whenLookedUpByEmailRepeatedly_thenServedByTheNaturalIdCache() {
+        userRepository.findByEmail(EMAIL);
+
+        statistics.clear();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(id, userRepository.findByEmail(EMAIL).getId().longValue());
+        }
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(3, statistics.getNaturalIdCacheHitCount());
+    }
+
+    @Test
+    public void whenEmailChanged_thenTheOldNaturalIdNoLongerResolves() throws Throwable {
+        final User user = userRepository.save(newUser("before-rename-" + EMAIL));
+        assertEquals(user.getId(), userRepository.findByEmail("before-rename-" + EMAIL).getId());
+
+        user.setEmail("after-rename-" + EMAIL);
+        userService.updateExistingUser(user);
+
+        assertNull(userRepository.findByEmail("before-rename-" + EMAIL));
+        assertEquals(user.getId(), userRepository.findByEmail("after-rename-" + EMAIL).getId());
+    }
+
+    @Test
+    public void whenUserDeleted_thenItIsNoLongerServedFromTheCache() {
+        final long deletedId = userRepository.save(newUser("deleted-" + EMAIL)).getId();
+        assertEquals(deletedId, userRepository.findByEmail("deleted-" + EMAIL).getId().longValue());
+
+        userService.deleteUser(deletedId);
+
+        assertNull(userRepository.findByEmail("deleted-" + EMAIL));
+        assertTrue(!userRepository.findById(deletedId).isPresent());
+    }
+
+    @Test
+    public void whenSchemaGenerated_thenEmailHasASingleUniqueIndex() throws SQLException {
+        // Hibernate folds the natural id's unique key into the named index instead of adding a second one
+        final List<String> uniqueEmailIndexes = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             ResultSet rs = connection.getMetaData().getIndexInfo(null, null, "User", true, false)) {
+            while (rs.next()) {
+                if ("email".equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+                    uniqueEmailIndexes.add(rs.getString("INDEX_NAME").toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        assertEquals(1, uniqueEmailIndexes.size());
+        assertTrue(uniqueEmailIndexes.get(0).contains(User.EMAIL_INDEX));
+    }
+
+    private User newUser(final String email) {
+        final User user = new User();
+        user.setEmail(email);
+        // hashed at the current strength, so a login does not rewrite it
+        user.setPassword(hashingPasswordEncoder.encode(PASSWORD));
+        user.setEnabled(true);
+        return user;
+    }
+
+    private static RequestBuilder asAdmin(final String url) {
+        return get(url).with(user("admin@example.com").authorities(new SimpleGrantedAuthority("ADMIN")));
+    }
+
+    private static RequestBuilder login() {
+        return post("/doLogin").param("username", EMAIL).param("password", PASSWORD);
+    }
+}